@@ -1,5 +1,6 @@
 package com.mag.taskList.config;
 
+import com.mag.taskList.service.props.PasswordProperties;
 import com.mag.taskList.web.security.JwtTokenFilter;
 import com.mag.taskList.web.security.JwtTokenProvider;
 import com.mag.taskList.web.security.expression.CustomSecurityExceptionHandler;
@@ -25,10 +26,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
@@ -38,9 +42,23 @@ public class ApplicationConfig {
     private final JwtTokenProvider tokenProvider;
     private final ApplicationContext applicationContext;
 
+    /**
+     * Хеширование паролей. Новые хеши получают префикс {bcrypt}
+     * и настроенную стоимость. Старые хеши без префикса продолжают
+     * проверяться и обновляются при успешном входе
+     * (см. {@link com.mag.taskList.web.security.JwtUserDetailsService}).
+     *
+     * @param passwordProperties свойства хеширования
+     * @return PasswordEncoder
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordProperties passwordProperties) {
+        String encodingId = "bcrypt";
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(encodingId,
+                Map.of(encodingId, new BCryptPasswordEncoder(passwordProperties.getStrength())));
+        // Хеши, сохраненные до появления префиксов
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return passwordEncoder;
     }
 
     @Bean
@@ -112,6 +130,10 @@ public class ApplicationConfig {
                 // Разрешить пользователям доступ к Swagger UI
                 .requestMatchers("/swagger-ui/**").permitAll()
                 .requestMatchers("/v3/api-docs/**").permitAll()
+                // Проверка состояния доступна без аутентификации (балансировщик, Kubernetes)
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                // Остальные endpoint'ы actuator (статистика SQL с ее сбросом, кэши) - только администратору
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 //  Остальные запросы будут требовать аутентификацию (проверку подлинности)
                 .anyRequest().authenticated()
                 .and()
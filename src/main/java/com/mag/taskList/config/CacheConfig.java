@@ -0,0 +1,114 @@
+package com.mag.taskList.config;
+
+import com.mag.taskList.config.cache.CacheInvalidationPublisher;
+import com.mag.taskList.config.cache.CacheLease;
+import com.mag.taskList.config.cache.CacheTagRegistry;
+import com.mag.taskList.config.cache.CacheTiersEndpoint;
+import com.mag.taskList.config.cache.CompactRedisSerializer;
+import com.mag.taskList.config.cache.TwoLevelCacheManager;
+import com.mag.taskList.service.props.LocalCacheProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Конфигурация кэша: локальный кэш (L1) перед Redis (L2)
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Менеджер кэшей Redis (второй уровень).
+     * Значения записываются компактным бинарным форматом
+     * ({@link CompactRedisSerializer}) под префиксом ключей этого формата.
+     *
+     * @param connectionFactory фабрика соединений с Redis
+     * @param properties        свойства кэша
+     * @return RedisCacheManager
+     */
+    @Bean
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory,
+                                               LocalCacheProperties properties) {
+        return RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(properties.getRedisTtl())
+                        .computePrefixWith(cacheName -> CompactRedisSerializer.KEY_PREFIX + cacheName + "::")
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                                new CompactRedisSerializer(properties.getCompressionThreshold()))))
+                .build();
+    }
+
+    /**
+     * Шаблон для прямой работы с записями кэша (например, чтения
+     * нескольких задач одним запросом MGET). Ключи совпадают с ключами
+     * {@link RedisCacheManager}: "compact:имя кэша::ключ".
+     *
+     * @param connectionFactory фабрика соединений с Redis
+     * @param properties        свойства кэша
+     * @return RedisTemplate
+     */
+    @Bean
+    public RedisTemplate<String, Object> cacheRedisTemplate(RedisConnectionFactory connectionFactory,
+                                                            LocalCacheProperties properties) {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(new CompactRedisSerializer(properties.getCompressionThreshold()));
+        return redisTemplate;
+    }
+
+    /**
+     * Основной менеджер кэшей, который используют аннотации @Cacheable
+     *
+     * @param redisCacheManager менеджер кэшей Redis
+     * @param properties        свойства кэша
+     * @return TwoLevelCacheManager
+     */
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisCacheManager redisCacheManager,
+                                             StringRedisTemplate redisTemplate,
+                                             LocalCacheProperties properties) {
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, properties);
+        if (properties.isLeaseEnabled()) {
+            cacheManager.setLease(new CacheLease(redisTemplate, properties.getLeaseTime()));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate redisTemplate,
+                                                                 RedisMessageListenerContainer listenerContainer,
+                                                                 TwoLevelCacheManager cacheManager) {
+        CacheInvalidationPublisher publisher =
+                new CacheInvalidationPublisher(redisTemplate, listenerContainer, cacheManager);
+        cacheManager.setPublisher(publisher);
+        return publisher;
+    }
+
+    /**
+     * Теги записей кэша. Используются сервисами для удаления
+     * всех записей, зависящих от пользователя или задачи.
+     */
+    @Bean
+    public CacheTagRegistry cacheTagRegistry(StringRedisTemplate redisTemplate,
+                                             TwoLevelCacheManager cacheManager,
+                                             LocalCacheProperties properties) {
+        CacheTagRegistry tagRegistry =
+                new CacheTagRegistry(redisTemplate, cacheManager, properties.getRedisTtl());
+        cacheManager.setTagRegistry(tagRegistry);
+        return tagRegistry;
+    }
+
+    @Bean
+    public CacheTiersEndpoint cacheTiersEndpoint(TwoLevelCacheManager cacheManager) {
+        return new CacheTiersEndpoint(cacheManager);
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.mag.taskList.config;
+
+import com.mag.taskList.config.datasource.ReplicaMonitor;
+import com.mag.taskList.config.jdbc.InstrumentedDataSourcePostProcessor;
+import com.mag.taskList.config.jdbc.JdbcStatistics;
+import com.mag.taskList.config.jdbc.JdbcStatsEndpoint;
+import com.mag.taskList.service.props.JdbcMonitoringProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация статистики SQL-запросов и журнала медленных запросов
+ */
+@Configuration
+public class JdbcMonitoringConfig {
+
+    /**
+     * Оборачивает DataSource для измерения времени запросов.
+     * Метод статический, так как BeanPostProcessor создается
+     * раньше остальных бинов.
+     *
+     * @param statistics статистика запросов
+     * @return InstrumentedDataSourcePostProcessor
+     */
+    @Bean
+    public static InstrumentedDataSourcePostProcessor instrumentedDataSourcePostProcessor(
+            ObjectProvider<JdbcStatistics> statistics) {
+        return new InstrumentedDataSourcePostProcessor(statistics);
+    }
+
+    @Bean
+    public JdbcStatistics jdbcStatistics(JdbcMonitoringProperties properties) {
+        return new JdbcStatistics(properties);
+    }
+
+    @Bean
+    public JdbcStatsEndpoint jdbcStatsEndpoint(JdbcStatistics statistics,
+                                               DataSource dataSource,
+                                               ObjectProvider<ReplicaMonitor> replicaMonitor) {
+        return new JdbcStatsEndpoint(statistics, dataSource, replicaMonitor);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.mag.taskList.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Конфигурация Redis (pub/sub).
+ * Один контейнер слушателей используется всеми подписчиками приложения.
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Контейнер, который получает сообщения из каналов Redis
+     * и передает их слушателям
+     *
+     * @param connectionFactory фабрика соединений с Redis
+     * @return RedisMessageListenerContainer
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+}
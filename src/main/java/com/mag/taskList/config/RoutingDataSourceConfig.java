@@ -0,0 +1,124 @@
+package com.mag.taskList.config;
+
+import com.mag.taskList.config.datasource.ReadYourWritesTracker;
+import com.mag.taskList.config.datasource.ReplicaMonitor;
+import com.mag.taskList.config.datasource.ReplicaRoutingDataSource;
+import com.mag.taskList.service.props.ReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Конфигурация чтения с реплик. Используется, только если
+ * в application.yaml задана хотя бы одна реплика (datasource.replicas.urls),
+ * иначе Spring Boot создает обычный DataSource основной БД.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replicas", name = "urls[0]")
+public class RoutingDataSourceConfig {
+
+    /**
+     * Пул соединений основной БД (настройки spring.datasource)
+     *
+     * @param dataSourceProperties свойства основной БД
+     * @return HikariDataSource
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    /**
+     * Пулы соединений реплик и проверка их состояния
+     *
+     * @param dataSourceProperties свойства основной БД
+     * @param properties           свойства реплик
+     * @param meterRegistry        метрики пулов соединений
+     * @return ReplicaMonitor
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaMonitor replicaMonitor(DataSourceProperties dataSourceProperties,
+                                         ReplicaProperties properties,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        String username = properties.getUsername() != null
+                ? properties.getUsername()
+                : dataSourceProperties.getUsername();
+        String password = properties.getPassword() != null
+                ? properties.getPassword()
+                : dataSourceProperties.getPassword();
+
+        List<ReplicaMonitor.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.getDriverClassName())
+                    .url(properties.getUrls().get(i))
+                    .username(username)
+                    .password(password)
+                    .build();
+            String name = "replica-" + i;
+            dataSource.setPoolName(name);
+            dataSource.setMaximumPoolSize(properties.getPoolSize());
+            dataSource.setReadOnly(true);
+            // Пулы реплик не являются бинами, поэтому метрики Hikari подключаются здесь
+            meterRegistry.ifAvailable(registry ->
+                    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.add(new ReplicaMonitor.Replica(name, dataSource));
+        }
+        return new ReplicaMonitor(replicas, properties.getMaxLag(), properties.getReceiverTimeout(),
+                properties.getHealthCheckInterval());
+    }
+
+    /**
+     * DataSource, который используют JPA, JdbcTemplate и Liquibase.
+     * Соединение запрашивается при первом запросе к БД, когда
+     * признак readOnly транзакции уже известен.
+     *
+     * @param primaryDataSource пул основной БД
+     * @param replicaMonitor    реплики
+     * @param properties        свойства реплик
+     * @param redisTemplate     отметки read-your-writes (общие для всех узлов)
+     * @return DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ReplicaMonitor replicaMonitor,
+                                 ReplicaProperties properties,
+                                 StringRedisTemplate redisTemplate) {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(replicaMonitor,
+                new ReadYourWritesTracker(redisTemplate, properties.getReadYourWrites()));
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        for (ReplicaMonitor.Replica replica : replicaMonitor.getReplicas()) {
+            targets.put(replica.getName(), replica.getDataSource());
+        }
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.mag.taskList.config.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Значение кэша вместе со временем загрузки и временем вычисления.
+ * Эти данные нужны для вероятностного раннего обновления записи
+ * (алгоритм XFetch): чем ближе истечение срока жизни и чем дороже
+ * вычисление, тем выше вероятность, что запрос обновит запись заранее.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CacheEnvelope implements Serializable {
+
+    /**
+     * Значение записи (может быть null)
+     */
+    private final Object value;
+    /**
+     * Время загрузки значения (в миллисекундах)
+     */
+    private final long loadedAt;
+    /**
+     * Время вычисления значения (в миллисекундах).
+     * 0 - значение записано напрямую, раннее обновление не выполняется.
+     */
+    private final long delta;
+
+    /**
+     * Оборачивает значение, которое было записано без метаданных
+     * (например, до появления этого класса)
+     *
+     * @param value значение или CacheEnvelope
+     * @return CacheEnvelope
+     */
+    public static CacheEnvelope of(Object value) {
+        if (value instanceof CacheEnvelope envelope) {
+            return envelope;
+        }
+        return new CacheEnvelope(value, 0, 0);
+    }
+
+    /**
+     * Проверяет, следует ли обновить запись заранее
+     *
+     * @param ttl  время жизни записи (в миллисекундах)
+     * @param beta коэффициент XFetch (0 - раннее обновление отключено)
+     * @return true - запись следует обновить
+     */
+    public boolean shouldRefresh(long ttl, double beta) {
+        if (delta == 0 || beta <= 0) {
+            return false;
+        }
+        double gap = -delta * beta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= loadedAt + ttl;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.mag.taskList.config.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Рассылает сообщения об изменении записей кэша между узлами
+ * приложения (Redis pub/sub). Получив сообщение, узел удаляет
+ * запись из своего локального кэша.
+ * Формат сообщения: узел|имя кэша|операция|ключ
+ * (для удаления нескольких записей ключи разделяются переводом строки).
+ */
+@RequiredArgsConstructor
+public class CacheInvalidationPublisher implements MessageListener {
+
+    /**
+     * Канал, в который публикуются сообщения
+     */
+    private static final String CHANNEL = "cache:invalidate";
+
+    private static final String EVICT = "e";
+    private static final String CLEAR = "c";
+    private static final String EVICT_ALL = "m";
+    private static final String KEY_SEPARATOR = "\n";
+
+    /**
+     * Идентификатор текущего узла. Собственные сообщения игнорируются.
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TwoLevelCacheManager cacheManager;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Сообщает остальным узлам, что запись изменилась
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ записи
+     */
+    public void evict(String cacheName, String key) {
+        redisTemplate.convertAndSend(CHANNEL, String.join("|", nodeId, cacheName, EVICT, key));
+    }
+
+    /**
+     * Сообщает остальным узлам, что несколько записей изменились
+     * (одним сообщением)
+     *
+     * @param cacheName имя кэша
+     * @param keys      ключи записей
+     */
+    public void evictAll(String cacheName, Collection<String> keys) {
+        redisTemplate.convertAndSend(CHANNEL,
+                String.join("|", nodeId, cacheName, EVICT_ALL, String.join(KEY_SEPARATOR, keys)));
+    }
+
+    /**
+     * Сообщает остальным узлам, что кэш очищен
+     *
+     * @param cacheName имя кэша
+     */
+    public void clear(String cacheName) {
+        redisTemplate.convertAndSend(CHANNEL, String.join("|", nodeId, cacheName, CLEAR, ""));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        TwoLevelCache cache = cacheManager.getLoadedCache(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[2])) {
+            cache.clearLocal();
+        } else if (EVICT_ALL.equals(parts[2])) {
+            for (String key : parts[3].split(KEY_SEPARATOR)) {
+                cache.evictLocal(key);
+            }
+        } else {
+            cache.evictLocal(parts[3]);
+        }
+    }
+
+}
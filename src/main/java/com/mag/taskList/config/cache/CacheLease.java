@@ -0,0 +1,53 @@
+package com.mag.taskList.config.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * Аренда (lease) загрузки записи между узлами приложения.
+ * Только узел, получивший аренду, загружает значение из БД,
+ * остальные ожидают появления значения в Redis.
+ */
+@RequiredArgsConstructor
+public class CacheLease {
+
+    private static final String LEASE_KEY = "cache:lease:";
+
+    private final StringRedisTemplate redisTemplate;
+    /**
+     * Максимальное время аренды
+     */
+    private final Duration leaseTime;
+
+    /**
+     * Пытается получить аренду
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ записи
+     * @return true - аренда получена
+     */
+    public boolean acquire(String cacheName, String key) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(LEASE_KEY + cacheName + "::" + key, "1", leaseTime));
+    }
+
+    /**
+     * Освобождает аренду
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ записи
+     */
+    public void release(String cacheName, String key) {
+        redisTemplate.delete(LEASE_KEY + cacheName + "::" + key);
+    }
+
+    /**
+     * Максимальное время ожидания значения, загружаемого другим узлом
+     */
+    public Duration getLeaseTime() {
+        return leaseTime;
+    }
+
+}
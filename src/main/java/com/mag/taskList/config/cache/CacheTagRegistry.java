@@ -0,0 +1,207 @@
+package com.mag.taskList.config.cache;
+
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Теги записей кэша. Каждая запись помечается тегами объектов,
+ * от которых она зависит (например, пользователь - тегами user:{id}
+ * и task:{id} всех своих задач). Один вызов {@link #invalidate(String...)}
+ * удаляет все записи с указанным тегом на всех узлах.
+ * Для каждого тега в Redis хранится множество элементов "имя кэша|ключ".
+ */
+public class CacheTagRegistry {
+
+    private static final String TAG_KEY = "cache:tag:";
+    private static final String SEPARATOR = "|";
+    private static final String CACHE_KEY_SEPARATOR = "::";
+
+    private final StringRedisTemplate redisTemplate;
+    private final TwoLevelCacheManager cacheManager;
+    /**
+     * Время жизни тега. Совпадает со временем жизни записей Redis.
+     */
+    private final Duration ttl;
+
+    public CacheTagRegistry(StringRedisTemplate redisTemplate,
+                            TwoLevelCacheManager cacheManager,
+                            Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Тег пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @return тег
+     */
+    public static String userTag(Long userId) {
+        return "user:" + userId;
+    }
+
+    /**
+     * Тег задачи
+     *
+     * @param taskId идентификатор задачи
+     * @return тег
+     */
+    public static String taskTag(Long taskId) {
+        return "task:" + taskId;
+    }
+
+    /**
+     * Определяет теги записи по ее значению.
+     * Задача кэшируется по своему ключу, поэтому тегов не имеет.
+     *
+     * @param value значение записи
+     * @return теги
+     */
+    static Collection<String> tagsOf(Object value) {
+        if (value instanceof User user && user.getId() != null) {
+            List<String> tags = new ArrayList<>();
+            tags.add(userTag(user.getId()));
+            if (user.getTasks() != null) {
+                for (Task task : user.getTasks()) {
+                    tags.add(taskTag(task.getId()));
+                }
+            }
+            return tags;
+        }
+        if (value instanceof UserCredentials credentials && credentials.getId() != null) {
+            return List.of(userTag(credentials.getId()));
+        }
+        return List.of();
+    }
+
+    /**
+     * Помечает запись тегами ее значения (одним pipeline-запросом)
+     *
+     * @param cacheName имя кэша
+     * @param key       ключ записи
+     * @param value     значение записи
+     */
+    void tag(String cacheName, Object key, Object value) {
+        Collection<String> tags = tagsOf(value);
+        if (tags.isEmpty()) {
+            return;
+        }
+        String member = cacheName + SEPARATOR + key;
+        long seconds = ttl.toSeconds();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String tag : tags) {
+                stringConnection.sAdd(TAG_KEY + tag, member);
+                stringConnection.expire(TAG_KEY + tag, seconds);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Удаляет все записи с указанными тегами.
+     * Если выполняется транзакция, записи удаляются после ее фиксации,
+     * чтобы параллельный запрос не закэшировал старые данные.
+     *
+     * @param tags теги
+     */
+    public void invalidate(String... tags) {
+        invalidate(List.of(tags), List.of(), List.of());
+    }
+
+    /**
+     * Удаляет все записи с указанными тегами и записи указанных кэшей
+     * по ключам. Записи Redis удаляются двумя pipeline-запросами
+     * независимо от количества тегов и ключей.
+     *
+     * @param tags       теги
+     * @param cacheNames имена кэшей, записи которых необходимо удалить
+     * @param keys       ключи записей
+     */
+    public void invalidate(Collection<String> tags, Collection<String> cacheNames, Collection<?> keys) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(tags, cacheNames, keys);
+                }
+            });
+        } else {
+            invalidateNow(tags, cacheNames, keys);
+        }
+    }
+
+    private void invalidateNow(Collection<String> tags, Collection<String> cacheNames, Collection<?> keys) {
+        List<String> tagKeys = tags.stream()
+                .map(tag -> TAG_KEY + tag)
+                .toList();
+
+        // Ключи записей по именам кэшей
+        Map<String, Set<String>> entries = new HashMap<>();
+        for (String cacheName : cacheNames) {
+            Set<String> cacheKeys = entries.computeIfAbsent(cacheName, name -> new HashSet<>());
+            for (Object key : keys) {
+                cacheKeys.add(String.valueOf(key));
+            }
+        }
+        if (!tagKeys.isEmpty()) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String tagKey : tagKeys) {
+                    stringConnection.sMembers(tagKey);
+                }
+                return null;
+            });
+            for (Object result : results) {
+                if (!(result instanceof Collection<?> members)) {
+                    continue;
+                }
+                for (Object member : members) {
+                    String value = String.valueOf(member);
+                    int separator = value.indexOf(SEPARATOR);
+                    entries.computeIfAbsent(value.substring(0, separator), name -> new HashSet<>())
+                            .add(value.substring(separator + 1));
+                }
+            }
+        }
+
+        // Ключи Redis совпадают с ключами RedisCacheManager: "compact:имя кэша::ключ"
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            if (!tagKeys.isEmpty()) {
+                stringConnection.del(tagKeys.toArray(new String[0]));
+            }
+            entries.forEach((name, cacheKeys) -> {
+                if (!cacheKeys.isEmpty()) {
+                    stringConnection.del(cacheKeys.stream()
+                            .map(key -> CompactRedisSerializer.KEY_PREFIX + name + CACHE_KEY_SEPARATOR + key)
+                            .toArray(String[]::new));
+                }
+            });
+            return null;
+        });
+
+        entries.forEach((name, cacheKeys) -> {
+            if (!cacheKeys.isEmpty()) {
+                ((TwoLevelCache) cacheManager.getCache(name)).evictAllLocal(cacheKeys);
+            }
+        });
+    }
+
+}
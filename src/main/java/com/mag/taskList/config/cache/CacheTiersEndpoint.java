@@ -0,0 +1,34 @@
+package com.mag.taskList.config.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actuator endpoint (/actuator/cachetiers), который отображает
+ * долю попаданий для каждого уровня кэша.
+ * Используется для подбора размера L1 для каждого кэша.
+ */
+@Endpoint(id = "cachetiers")
+@RequiredArgsConstructor
+public class CacheTiersEndpoint {
+
+    private final TwoLevelCacheManager cacheManager;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> cacheTiers() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (TwoLevelCache cache : cacheManager.getCaches()) {
+            result.put(cache.getName(), Map.of(
+                    "l1HitRatio", cache.localHitRatio(),
+                    "l1Size", cache.localSize(),
+                    "l2HitRatio", cache.remoteHitRatio()
+            ));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,473 @@
+package com.mag.taskList.config.cache;
+
+import com.mag.taskList.domain.task.Status;
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.user.Role;
+import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Компактный бинарный сериализатор значений кэша.
+ * Задачи и пользователи записываются по известной схеме (без описаний классов),
+ * остальные значения - стандартной сериализацией Java.
+ * Формат записи: MAGIC, версия формата, флаги, тип значения, данные.
+ * Если запись больше порога, данные сжимаются.
+ * <p>
+ * Предыдущая версия приложения записывает значения кэша стандартной
+ * сериализацией Java и не читает этот формат. Поэтому записи этого формата
+ * хранятся под отдельным префиксом ключей ({@link #KEY_PREFIX}): при обновлении
+ * узлов по одному старые и новые узлы не читают записи друг друга,
+ * а старые записи удаляются по истечении срока жизни.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * Префикс ключей Redis, значения которых записаны в этом формате.
+     * При несовместимом изменении формата префикс меняется.
+     */
+    public static final String KEY_PREFIX = "compact:";
+
+    /**
+     * Первый байт записи
+     */
+    private static final byte MAGIC = 0x7C;
+    /**
+     * Версия формата
+     */
+    private static final byte VERSION = 1;
+    /**
+     * Флаг: данные сжаты
+     */
+    private static final byte COMPRESSED = 1;
+    /**
+     * Размер заголовка: MAGIC, версия, флаги
+     */
+    private static final int HEADER_SIZE = 3;
+
+    private static final byte TYPE_JDK = 0;
+    private static final byte TYPE_TASK = 1;
+    private static final byte TYPE_USER = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+    private static final byte TYPE_TASK_LIST = 4;
+    private static final byte TYPE_ENVELOPE = 5;
+    private static final byte TYPE_NULL = 6;
+    private static final byte TYPE_CREDENTIALS = 7;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Role[] ROLES = Role.values();
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    /**
+     * Размер данных (в байтах), начиная с которого данные сжимаются
+     */
+    private final int compressionThreshold;
+
+    public CompactRedisSerializer(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeValue(out, value);
+            out.flush();
+
+            byte[] payload = bytes.toByteArray();
+            byte flags = 0;
+            if (payload.length >= compressionThreshold) {
+                payload = compress(payload);
+                flags |= COMPRESSED;
+            }
+
+            byte[] result = new byte[HEADER_SIZE + payload.length];
+            result[0] = MAGIC;
+            result[1] = VERSION;
+            result[2] = flags;
+            System.arraycopy(payload, 0, result, HEADER_SIZE, payload.length);
+            return result;
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize cache value.", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC || bytes.length < HEADER_SIZE) {
+            throw new SerializationException("Unknown cache value format.");
+        }
+        if (bytes[1] != VERSION) {
+            throw new SerializationException("Unsupported cache format version " + bytes[1] + ".");
+        }
+        try {
+            byte[] payload = new byte[bytes.length - HEADER_SIZE];
+            System.arraycopy(bytes, HEADER_SIZE, payload, 0, payload.length);
+            if ((bytes[2] & COMPRESSED) != 0) {
+                payload = decompress(payload);
+            }
+            return readValue(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("Cannot deserialize cache value.", e);
+        }
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof CacheEnvelope envelope) {
+            out.writeByte(TYPE_ENVELOPE);
+            writeVarLong(out, envelope.getLoadedAt());
+            writeVarLong(out, envelope.getDelta());
+            writeValue(out, envelope.getValue());
+        } else if (value instanceof Task task) {
+            out.writeByte(TYPE_TASK);
+            writeTask(out, task);
+        } else if (value instanceof User user) {
+            out.writeByte(TYPE_USER);
+            writeUser(out, user);
+        } else if (value instanceof UserCredentials credentials) {
+            out.writeByte(TYPE_CREDENTIALS);
+            writeCredentials(out, credentials);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(bool);
+        } else if (value instanceof List<?> list && list.stream().allMatch(Task.class::isInstance)) {
+            out.writeByte(TYPE_TASK_LIST);
+            writeTasks(out, list);
+        } else {
+            out.writeByte(TYPE_JDK);
+            out.write(jdkSerializer.serialize(value));
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case TYPE_TASK -> readTask(in);
+            case TYPE_USER -> readUser(in);
+            case TYPE_CREDENTIALS -> readCredentials(in);
+            case TYPE_BOOLEAN -> in.readBoolean();
+            case TYPE_TASK_LIST -> readTasks(in);
+            case TYPE_ENVELOPE -> {
+                long loadedAt = readVarLong(in);
+                long delta = readVarLong(in);
+                yield new CacheEnvelope(readValue(in), loadedAt, delta);
+            }
+            case TYPE_NULL -> null;
+            case TYPE_JDK -> jdkSerializer.deserialize(in.readAllBytes());
+            default -> throw new SerializationException("Unknown cache value type " + type + ".");
+        };
+    }
+
+    /**
+     * Задача: id, title, description, status, expirationDate, version.
+     * Перед полями записывается маска заполненных (не null) полей.
+     */
+    private void writeTask(DataOutputStream out, Task task) throws IOException {
+        int mask = (task.getId() != null ? 1 : 0)
+                | (task.getTitle() != null ? 2 : 0)
+                | (task.getDescription() != null ? 4 : 0)
+                | (task.getStatus() != null ? 8 : 0)
+                | (task.getExpirationDate() != null ? 16 : 0)
+                | (task.getVersion() != null ? 32 : 0);
+        out.writeByte(mask);
+        if (task.getId() != null) {
+            writeVarLong(out, task.getId());
+        }
+        if (task.getTitle() != null) {
+            writeString(out, task.getTitle());
+        }
+        if (task.getDescription() != null) {
+            writeString(out, task.getDescription());
+        }
+        if (task.getStatus() != null) {
+            out.writeByte(task.getStatus().ordinal());
+        }
+        if (task.getExpirationDate() != null) {
+            LocalDateTime date = task.getExpirationDate();
+            writeVarLong(out, date.toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(out, date.getNano());
+        }
+        if (task.getVersion() != null) {
+            writeVarLong(out, task.getVersion());
+        }
+    }
+
+    private Task readTask(DataInputStream in) throws IOException {
+        int mask = in.readUnsignedByte();
+        Task task = new Task();
+        if ((mask & 1) != 0) {
+            task.setId(readVarLong(in));
+        }
+        if ((mask & 2) != 0) {
+            task.setTitle(readString(in));
+        }
+        if ((mask & 4) != 0) {
+            task.setDescription(readString(in));
+        }
+        if ((mask & 8) != 0) {
+            task.setStatus(STATUSES[in.readUnsignedByte()]);
+        }
+        if ((mask & 16) != 0) {
+            long seconds = readVarLong(in);
+            int nanos = (int) readVarLong(in);
+            task.setExpirationDate(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        }
+        if ((mask & 32) != 0) {
+            task.setVersion(readVarLong(in));
+        }
+        return task;
+    }
+
+    private void writeTasks(DataOutputStream out, List<?> tasks) throws IOException {
+        writeVarLong(out, tasks.size());
+        for (Object task : tasks) {
+            writeTask(out, (Task) task);
+        }
+    }
+
+    private List<Task> readTasks(DataInputStream in) throws IOException {
+        int size = (int) readVarLong(in);
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(readTask(in));
+        }
+        return tasks;
+    }
+
+    /**
+     * Пользователь: id, name, username, password, roles, tasks.
+     * Поле passwordConfirmation не кэшируется.
+     */
+    private void writeUser(DataOutputStream out, User user) throws IOException {
+        int mask = (user.getId() != null ? 1 : 0)
+                | (user.getName() != null ? 2 : 0)
+                | (user.getUsername() != null ? 4 : 0)
+                | (user.getPassword() != null ? 8 : 0)
+                | (user.getRoles() != null ? 16 : 0)
+                | (user.getTasks() != null ? 32 : 0);
+        out.writeByte(mask);
+        if (user.getId() != null) {
+            writeVarLong(out, user.getId());
+        }
+        if (user.getName() != null) {
+            writeString(out, user.getName());
+        }
+        if (user.getUsername() != null) {
+            writeString(out, user.getUsername());
+        }
+        if (user.getPassword() != null) {
+            writeString(out, user.getPassword());
+        }
+        if (user.getRoles() != null) {
+            writeRoles(out, user.getRoles());
+        }
+        if (user.getTasks() != null) {
+            writeTasks(out, user.getTasks());
+        }
+    }
+
+    private User readUser(DataInputStream in) throws IOException {
+        int mask = in.readUnsignedByte();
+        User user = new User();
+        if ((mask & 1) != 0) {
+            user.setId(readVarLong(in));
+        }
+        if ((mask & 2) != 0) {
+            user.setName(readString(in));
+        }
+        if ((mask & 4) != 0) {
+            user.setUsername(readString(in));
+        }
+        if ((mask & 8) != 0) {
+            user.setPassword(readString(in));
+        }
+        if ((mask & 16) != 0) {
+            user.setRoles(readRoles(in));
+        }
+        if ((mask & 32) != 0) {
+            user.setTasks(readTasks(in));
+        }
+        return user;
+    }
+
+    /**
+     * Данные аутентификации: id, name, username, password, roles
+     */
+    private void writeCredentials(DataOutputStream out, UserCredentials credentials) throws IOException {
+        int mask = (credentials.getId() != null ? 1 : 0)
+                | (credentials.getName() != null ? 2 : 0)
+                | (credentials.getUsername() != null ? 4 : 0)
+                | (credentials.getPassword() != null ? 8 : 0)
+                | (credentials.getRoles() != null ? 16 : 0);
+        out.writeByte(mask);
+        if (credentials.getId() != null) {
+            writeVarLong(out, credentials.getId());
+        }
+        if (credentials.getName() != null) {
+            writeString(out, credentials.getName());
+        }
+        if (credentials.getUsername() != null) {
+            writeString(out, credentials.getUsername());
+        }
+        if (credentials.getPassword() != null) {
+            writeString(out, credentials.getPassword());
+        }
+        if (credentials.getRoles() != null) {
+            writeRoles(out, credentials.getRoles());
+        }
+    }
+
+    private UserCredentials readCredentials(DataInputStream in) throws IOException {
+        int mask = in.readUnsignedByte();
+        UserCredentials credentials = new UserCredentials();
+        if ((mask & 1) != 0) {
+            credentials.setId(readVarLong(in));
+        }
+        if ((mask & 2) != 0) {
+            credentials.setName(readString(in));
+        }
+        if ((mask & 4) != 0) {
+            credentials.setUsername(readString(in));
+        }
+        if ((mask & 8) != 0) {
+            credentials.setPassword(readString(in));
+        }
+        if ((mask & 16) != 0) {
+            credentials.setRoles(readRoles(in));
+        }
+        return credentials;
+    }
+
+    /**
+     * Роли хранятся в виде битовой маски
+     */
+    private static void writeRoles(DataOutputStream out, Set<Role> roles) throws IOException {
+        long mask = 0;
+        for (Role role : roles) {
+            mask |= 1L << role.ordinal();
+        }
+        writeVarLong(out, mask);
+    }
+
+    private static Set<Role> readRoles(DataInputStream in) throws IOException {
+        long mask = readVarLong(in);
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : ROLES) {
+            if ((mask & (1L << role.ordinal())) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Записывает неотрицательное число переменной длины (7 бит в байте)
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Сжимает данные. Используется самый быстрый уровень сжатия,
+     * в начале записывается исходный размер.
+     */
+    private static byte[] compress(byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 8);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeVarLong(out, data.length);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException, DataFormatException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int size = (int) readVarLong(in);
+        int offset = data.length - in.available();
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] result = new byte[size];
+            int read = 0;
+            while (read < size && !inflater.finished()) {
+                int count = inflater.inflate(result, read, size - read);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("Truncated cache value.");
+                }
+                read += count;
+            }
+            return result;
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,356 @@
+package com.mag.taskList.config.cache;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Двухуровневый кэш. Первый уровень (L1) - Caffeine в памяти приложения,
+ * второй уровень (L2) - Redis.
+ * Чтение сначала выполняется из L1, затем из L2. Изменения записываются
+ * в оба уровня, а остальные узлы удаляют запись из своего L1.
+ * Ключи L1 хранятся в виде строк, как и в Redis.
+ * <p>
+ * Для {@code @Cacheable(sync = true)} значение по одному ключу загружает
+ * только один поток узла, остальные ожидают результат (single-flight).
+ * Между узлами загрузку может ограничивать аренда в Redis ({@link CacheLease}).
+ * Запись может быть обновлена заранее, до истечения срока жизни
+ * (см. {@link CacheEnvelope#shouldRefresh(long, double)}).
+ * <p>
+ * Значение, прочитанное из Redis или загруженное из источника, попадает
+ * в L1, только если за время чтения не пришло ни одного сообщения
+ * об удалении записей этого кэша. Иначе L1 мог бы хранить устаревшее
+ * значение до истечения local-ttl.
+ */
+public class TwoLevelCache implements Cache {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCache.class);
+
+    /**
+     * Интервал проверки Redis во время ожидания аренды
+     */
+    private static final long LEASE_POLL_MILLIS = 50;
+
+    @Getter
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, CacheEnvelope> local;
+    private final Cache remote;
+    private final CacheInvalidationPublisher publisher;
+    private final CacheTagRegistry tagRegistry;
+    /**
+     * Аренда загрузки между узлами (null - не используется)
+     */
+    private final CacheLease lease;
+    /**
+     * Время жизни записи в Redis (в миллисекундах)
+     */
+    private final long remoteTtl;
+    /**
+     * Коэффициент раннего обновления
+     */
+    private final double beta;
+
+    /**
+     * Загрузки, которые выполняются в данный момент (ключ L1 - результат)
+     */
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Номер последнего удаления записей из L1. Увеличивается
+     * при каждом удалении, в том числе по сообщению другого узла.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Счетчики обращений к Redis
+     */
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, CacheEnvelope> local,
+                         Cache remote,
+                         CacheInvalidationPublisher publisher,
+                         CacheTagRegistry tagRegistry,
+                         CacheLease lease,
+                         long remoteTtl,
+                         double beta) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.publisher = publisher;
+        this.tagRegistry = tagRegistry;
+        this.lease = lease;
+        this.remoteTtl = remoteTtl;
+        this.beta = beta;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CacheEnvelope envelope = lookup(key);
+        return envelope == null ? null : new SimpleValueWrapper(envelope.getValue());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        CacheEnvelope envelope = lookup(key);
+        Object value = envelope == null ? null : envelope.getValue();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type ["
+                    + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = String.valueOf(key);
+        CacheEnvelope envelope = lookup(key);
+        if (envelope != null) {
+            // Запись уже обновляется другим потоком или обновлять ее рано
+            if (inFlight.containsKey(localKey) || !envelope.shouldRefresh(remoteTtl, beta)) {
+                return (T) envelope.getValue();
+            }
+        }
+        return (T) load(key, localKey, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, new CacheEnvelope(value, System.currentTimeMillis(), 0));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        CacheEnvelope envelope = new CacheEnvelope(value, System.currentTimeMillis(), 0);
+        ValueWrapper existing = remote.putIfAbsent(key, envelope);
+        if (existing == null) {
+            local.put(String.valueOf(key), envelope);
+            tagRegistry.tag(name, key, value);
+            publisher.evict(name, String.valueOf(key));
+            return null;
+        }
+        return new SimpleValueWrapper(CacheEnvelope.of(existing.get()).getValue());
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        evictLocal(String.valueOf(key));
+        publisher.evict(name, String.valueOf(key));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+        publisher.clear(name);
+    }
+
+    /**
+     * Ищет запись сначала в L1, затем в Redis
+     *
+     * @param key ключ записи
+     * @return запись или null
+     */
+    private CacheEnvelope lookup(Object key) {
+        String localKey = String.valueOf(key);
+        CacheEnvelope envelope = local.getIfPresent(localKey);
+        if (envelope != null) {
+            return envelope;
+        }
+
+        long sequence = invalidations.get();
+        ValueWrapper wrapper = remoteGet(key);
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        envelope = CacheEnvelope.of(wrapper.get());
+        putLocal(localKey, envelope, sequence);
+        return envelope;
+    }
+
+    /**
+     * Читает запись Redis. Запись, которую нельзя прочитать (например,
+     * записанная узлом с более новым форматом), считается отсутствующей
+     * и будет перезаписана после загрузки значения.
+     * CacheErrorHandler здесь не подходит: для {@code @Cacheable(sync = true)}
+     * ошибка чтения не передается обработчику.
+     */
+    private ValueWrapper remoteGet(Object key) {
+        try {
+            return remote.get(key);
+        } catch (SerializationException e) {
+            log.debug("Cannot read cache entry {}::{}: {}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Загружает значение. Для одного ключа загрузка выполняется
+     * только одним потоком, остальные получают тот же результат.
+     */
+    private Object load(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(localKey, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+
+        try {
+            Object value = lease == null
+                    ? loadAndStore(key, valueLoader)
+                    : loadWithLease(key, localKey, valueLoader);
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(localKey, future);
+        }
+    }
+
+    /**
+     * Загружает значение, если аренда получена. Иначе ожидает,
+     * пока другой узел запишет значение в Redis.
+     */
+    private Object loadWithLease(Object key, String localKey, Callable<?> valueLoader) throws Exception {
+        if (lease.acquire(name, localKey)) {
+            try {
+                return loadAndStore(key, valueLoader);
+            } finally {
+                lease.release(name, localKey);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + lease.getLeaseTime().toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(LEASE_POLL_MILLIS);
+            long sequence = invalidations.get();
+            ValueWrapper wrapper = remoteGet(key);
+            if (wrapper != null) {
+                CacheEnvelope envelope = CacheEnvelope.of(wrapper.get());
+                putLocal(localKey, envelope, sequence);
+                return envelope.getValue();
+            }
+        }
+        // Другой узел не успел загрузить значение
+        return loadAndStore(key, valueLoader);
+    }
+
+    private Object loadAndStore(Object key, Callable<?> valueLoader) throws Exception {
+        long sequence = invalidations.get();
+        long start = System.currentTimeMillis();
+        Object value = valueLoader.call();
+        long now = System.currentTimeMillis();
+        CacheEnvelope envelope = new CacheEnvelope(value, now, Math.max(1, now - start));
+        remote.put(key, envelope);
+        putLocal(String.valueOf(key), envelope, sequence);
+        tagRegistry.tag(name, key, value);
+        publisher.evict(name, String.valueOf(key));
+        return value;
+    }
+
+    private void store(Object key, CacheEnvelope envelope) {
+        remote.put(key, envelope);
+        local.put(String.valueOf(key), envelope);
+        tagRegistry.tag(name, key, envelope.getValue());
+        publisher.evict(name, String.valueOf(key));
+    }
+
+    /**
+     * Записывает значение в L1, если после начала чтения
+     * записи этого кэша не удалялись. Проверка выполняется после записи:
+     * удаление, пришедшее между проверкой и записью, не теряется.
+     *
+     * @param key      ключ L1
+     * @param envelope запись
+     * @param sequence номер удаления, прочитанный до начала чтения
+     */
+    private void putLocal(String key, CacheEnvelope envelope, long sequence) {
+        local.put(key, envelope);
+        if (invalidations.get() != sequence) {
+            local.invalidate(key);
+        }
+    }
+
+    /**
+     * Удаляет запись только из L1
+     *
+     * @param key ключ записи
+     */
+    void evictLocal(String key) {
+        invalidations.incrementAndGet();
+        local.invalidate(key);
+    }
+
+    /**
+     * Удаляет записи из L1 на всех узлах (одним сообщением).
+     * Записи Redis удаляет вызывающий код.
+     *
+     * @param keys ключи записей
+     */
+    void evictAllLocal(Collection<String> keys) {
+        invalidations.incrementAndGet();
+        local.invalidateAll(keys);
+        publisher.evictAll(name, keys);
+    }
+
+    /**
+     * Очищает только L1
+     */
+    void clearLocal() {
+        invalidations.incrementAndGet();
+        local.invalidateAll();
+    }
+
+    /**
+     * Доля обращений, обслуженных L1
+     */
+    public double localHitRatio() {
+        return local.stats().hitRate();
+    }
+
+    /**
+     * Доля обращений к Redis (после промаха L1), обслуженных L2
+     */
+    public double remoteHitRatio() {
+        long hits = remoteHits.sum();
+        long total = hits + remoteMisses.sum();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    /**
+     * Количество записей в L1
+     */
+    public long localSize() {
+        return local.estimatedSize();
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.mag.taskList.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mag.taskList.service.props.LocalCacheProperties;
+import lombok.Setter;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Менеджер двухуровневых кэшей ({@link TwoLevelCache}).
+ * Кэши второго уровня берутся из менеджера Redis.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final LocalCacheProperties properties;
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    @Setter
+    private CacheInvalidationPublisher publisher;
+    @Setter
+    private CacheTagRegistry tagRegistry;
+    /**
+     * Аренда загрузки между узлами (null - не используется)
+     */
+    @Setter
+    private CacheLease lease;
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                LocalCacheProperties properties) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.properties = properties;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * Получает кэш, если он уже был создан
+     *
+     * @param name имя кэша
+     * @return кэш или null
+     */
+    public TwoLevelCache getLoadedCache(String name) {
+        return caches.get(name);
+    }
+
+    /**
+     * Все созданные кэши
+     */
+    public Collection<TwoLevelCache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        // Caffeine использует вытеснение W-TinyLFU
+        com.github.benmanes.caffeine.cache.Cache<String, CacheEnvelope> local = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize(name))
+                .expireAfterWrite(properties.getLocalTtl())
+                .recordStats()
+                .build();
+        return new TwoLevelCache(name, local, remoteCacheManager.getCache(name), publisher, tagRegistry,
+                lease, properties.getRedisTtl().toMillis(), properties.getEarlyRefreshBeta());
+    }
+
+}
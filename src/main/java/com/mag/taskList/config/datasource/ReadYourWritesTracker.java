@@ -0,0 +1,61 @@
+package com.mag.taskList.config.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * Запоминает время последнего изменения данных пользователем.
+ * В течение заданного времени после изменения чтение этого
+ * пользователя выполняется из основной БД, поэтому пользователь
+ * видит свои изменения, даже если реплика еще их не получила.
+ * Отметка хранится в Redis, поэтому действует на всех узлах приложения.
+ */
+public class ReadYourWritesTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadYourWritesTracker.class);
+
+    /**
+     * Ключ отметки пользователя
+     */
+    private static final String KEY = "read-your-writes::";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration window;
+
+    public ReadYourWritesTracker(StringRedisTemplate redisTemplate, Duration window) {
+        this.redisTemplate = redisTemplate;
+        this.window = window;
+    }
+
+    /**
+     * Отмечает, что пользователь изменил данные
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void markWrite(Long userId) {
+        try {
+            redisTemplate.opsForValue().set(KEY + userId, "1", window);
+        } catch (RuntimeException e) {
+            log.warn("Cannot mark write of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Проверяет, изменял ли пользователь данные недавно.
+     * Если Redis недоступен, чтение выполняется из основной БД.
+     *
+     * @param userId идентификатор пользователя
+     * @return true - чтение нужно выполнить из основной БД
+     */
+    public boolean isRecentWriter(Long userId) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY + userId));
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.mag.taskList.config.datasource;
+
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Проверяет доступность и отставание реплик.
+ * Реплика используется для чтения, только если последняя проверка
+ * прошла успешно, реплика получает WAL от основной БД
+ * и отставание не больше допустимого.
+ * Реплики выбираются по кругу (round-robin).
+ */
+public class ReplicaMonitor implements AutoCloseable {
+
+    /**
+     * Состояние реплики: режим восстановления, состояние получателя WAL,
+     * время с последнего сообщения от основной БД (в секундах) и отставание
+     * (в секундах). Если реплика применила все полученные изменения,
+     * отставание равно 0, даже если основная БД давно не изменялась,
+     * поэтому отдельно проверяется, что WAL продолжает поступать.
+     */
+    private static final String LAG_QUERY = """
+            SELECT pg_is_in_recovery(),
+                   r.status,
+                   extract(EPOCH FROM now() - r.last_msg_receipt_time),
+                   CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE coalesce(extract(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                       END
+            FROM (SELECT 1) AS one
+                     LEFT JOIN pg_stat_wal_receiver r ON true
+            """;
+
+    /**
+     * Реплика и результат ее последней проверки
+     */
+    public static class Replica {
+
+        @Getter
+        private final String name;
+        @Getter
+        private final DataSource dataSource;
+        @Getter
+        private volatile boolean healthy;
+        /**
+         * Отставание (в миллисекундах), -1 - реплика недоступна
+         */
+        @Getter
+        private volatile long lagMillis = -1;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+    }
+
+    @Getter
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final long receiverTimeoutMillis;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaMonitor(List<Replica> replicas, Duration maxLag, Duration receiverTimeout, Duration interval) {
+        this.replicas = replicas;
+        this.maxLagMillis = maxLag.toMillis();
+        this.receiverTimeoutMillis = receiverTimeout.toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkAll();
+        executor.scheduleWithFixedDelay(this::checkAll,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выбирает доступную реплику
+     *
+     * @return имя реплики или null, если доступных реплик нет
+     */
+    public String choose() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.name;
+            }
+        }
+        return null;
+    }
+
+    private void checkAll() {
+        for (Replica replica : replicas) {
+            check(replica);
+        }
+    }
+
+    private void check(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            rs.next();
+            if (!rs.getBoolean(1)) {
+                // Не реплика (например, основная БД после переключения)
+                replica.lagMillis = 0;
+                replica.healthy = true;
+                return;
+            }
+            String status = rs.getString(2);
+            double receiptAge = rs.getDouble(3);
+            boolean receiptKnown = !rs.wasNull();
+            boolean receiving = "streaming".equals(status)
+                    && receiptKnown
+                    && receiptAge * 1000 <= receiverTimeoutMillis;
+            replica.lagMillis = (long) (rs.getDouble(4) * 1000);
+            replica.healthy = receiving && replica.lagMillis <= maxLagMillis;
+        } catch (SQLException e) {
+            replica.lagMillis = -1;
+            replica.healthy = false;
+        }
+    }
+
+    /**
+     * Останавливает проверки и закрывает пулы соединений реплик
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+}
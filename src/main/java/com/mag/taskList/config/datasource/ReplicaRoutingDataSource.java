@@ -0,0 +1,66 @@
+package com.mag.taskList.config.datasource;
+
+import com.mag.taskList.web.security.JwtEntity;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Направляет транзакции только для чтения на реплики,
+ * остальные запросы - на основную БД.
+ * Основная БД используется и для чтения, если доступных реплик нет
+ * или пользователь недавно изменял данные ({@link ReadYourWritesTracker}).
+ * Загрузки значений в кэш выполняются без транзакции только для чтения,
+ * то есть в основной БД: строка, прочитанная из отстающей реплики,
+ * попала бы в кэш уже после удаления записи и хранилась бы до истечения срока жизни.
+ * Соединение должно запрашиваться после начала транзакции
+ * (см. LazyConnectionDataSourceProxy), иначе признак readOnly еще не установлен.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Ключ основной БД
+     */
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaMonitor monitor;
+    private final ReadYourWritesTracker tracker;
+
+    public ReplicaRoutingDataSource(ReplicaMonitor monitor, ReadYourWritesTracker tracker) {
+        this.monitor = monitor;
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Окно отсчитывается от фиксации, а не от начала транзакции
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        tracker.markWrite(userId);
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if (userId != null && tracker.isRecentWriter(userId)) {
+            return PRIMARY;
+        }
+        String replica = monitor.choose();
+        return replica == null ? PRIMARY : replica;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtEntity user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+}
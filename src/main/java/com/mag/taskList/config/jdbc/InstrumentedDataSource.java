@@ -0,0 +1,117 @@
+package com.mag.taskList.config.jdbc;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Обертка над DataSource, которая измеряет время выполнения запросов.
+ * Соединения и запросы оборачиваются динамическими прокси (java.lang.reflect.Proxy),
+ * время выполнения передается в {@link JdbcStatistics}.
+ * Методы unwrap/isWrapperFor передаются исходным объектам, поэтому
+ * пул соединений остается доступным (например, для метрик Hikari).
+ */
+public final class InstrumentedDataSource {
+
+    /**
+     * Методы Statement, которые выполняют запрос
+     */
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+            "executeBatch", "executeLargeBatch"
+    );
+
+    private InstrumentedDataSource() {
+    }
+
+    /**
+     * Оборачивает DataSource
+     *
+     * @param dataSource исходный DataSource
+     * @param statistics статистика запросов
+     * @return DataSource, измеряющий время выполнения запросов
+     */
+    public static DataSource wrap(DataSource dataSource, JdbcStatistics statistics) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Connection connection) {
+                return wrapConnection(connection, statistics);
+            }
+            return result;
+        });
+    }
+
+    private static Connection wrapConnection(Connection connection, JdbcStatistics statistics) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            // Текст запроса известен при создании PreparedStatement
+            if (result instanceof CallableStatement statement) {
+                return wrapStatement(CallableStatement.class, statement, (String) args[0], statistics);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return wrapStatement(PreparedStatement.class, statement, (String) args[0], statistics);
+            }
+            if (result instanceof Statement statement) {
+                return wrapStatement(Statement.class, statement, null, statistics);
+            }
+            return result;
+        });
+    }
+
+    private static <T extends Statement> T wrapStatement(Class<T> type, T statement,
+                                                         String preparedSql, JdbcStatistics statistics) {
+        return proxy(type, statement, (target, method, args) -> {
+            if (!EXECUTE_METHODS.contains(method.getName())) {
+                return invoke(target, method, args);
+            }
+            // Для Statement текст запроса передается в execute*
+            String sql = preparedSql != null
+                    ? preparedSql
+                    : args != null && args.length > 0 && args[0] instanceof String text ? text : "batch";
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = invoke(target, method, args);
+                success = true;
+                return result;
+            } finally {
+                statistics.record(sql, System.nanoTime() - start, success);
+            }
+        });
+    }
+
+    /**
+     * Обработчик вызова с доступом к исходному объекту
+     */
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> handler.handle(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
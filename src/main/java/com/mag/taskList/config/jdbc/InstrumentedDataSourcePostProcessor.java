@@ -0,0 +1,35 @@
+package com.mag.taskList.config.jdbc;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает основной DataSource приложения (бин "dataSource")
+ * в {@link InstrumentedDataSource}. Используется как для DataSource,
+ * созданного Spring Boot, так и для DataSource с репликами.
+ */
+public class InstrumentedDataSourcePostProcessor implements BeanPostProcessor {
+
+    private static final String DATA_SOURCE = "dataSource";
+
+    /**
+     * Статистика запрашивается при создании DataSource,
+     * чтобы не создавать ее раньше остальных бинов
+     */
+    private final ObjectProvider<JdbcStatistics> statistics;
+
+    public InstrumentedDataSourcePostProcessor(ObjectProvider<JdbcStatistics> statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (DATA_SOURCE.equals(beanName) && bean instanceof DataSource dataSource) {
+            return InstrumentedDataSource.wrap(dataSource, statistics.getObject());
+        }
+        return bean;
+    }
+
+}
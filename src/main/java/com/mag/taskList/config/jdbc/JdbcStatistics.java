@@ -0,0 +1,186 @@
+package com.mag.taskList.config.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mag.taskList.service.props.JdbcMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Статистика выполнения SQL-запросов.
+ * Запросы группируются по нормализованному тексту: литералы заменяются
+ * на "?", списки параметров (IN, VALUES) сворачиваются, поэтому
+ * значения параметров в статистику и журнал медленных запросов не попадают.
+ */
+public class JdbcStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcStatistics.class);
+
+    /**
+     * Запись для запросов сверх лимита maxStatements
+     */
+    private static final String OTHER = "other";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern VALUES_LIST = Pattern.compile("(\\(\\?\\))(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Статистика одного запроса
+     */
+    static class Statement {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Медленный запрос
+     *
+     * @param sql        нормализованный текст запроса
+     * @param durationMs время выполнения (в миллисекундах)
+     * @param executedAt время выполнения
+     */
+    public record SlowQuery(String sql, long durationMs, Instant executedAt) {
+    }
+
+    private final long slowQueryNanos;
+    private final int slowQueryLogSize;
+    private final int maxStatements;
+
+    /**
+     * Нормализованный текст по исходному тексту запроса.
+     * Регулярные выражения выполняются один раз для каждого текста запроса,
+     * а не при каждом выполнении.
+     */
+    private final Cache<String, String> normalized;
+    private final Map<String, Statement> statements = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    public JdbcStatistics(JdbcMonitoringProperties properties) {
+        this.slowQueryNanos = properties.getSlowQueryThreshold().toNanos();
+        this.slowQueryLogSize = properties.getSlowQueryLogSize();
+        this.maxStatements = properties.getMaxStatements();
+        this.normalized = Caffeine.newBuilder()
+                // Один нормализованный запрос может иметь несколько исходных текстов
+                // (например, IN с разным количеством параметров)
+                .maximumSize(properties.getMaxStatements() * 4L)
+                .build();
+    }
+
+    /**
+     * Учитывает выполнение запроса
+     *
+     * @param sql     текст запроса
+     * @param nanos   время выполнения
+     * @param success запрос выполнен без ошибки
+     */
+    public void record(String sql, long nanos, boolean success) {
+        String normalized = sql == null ? "" : this.normalized.get(sql, JdbcStatistics::normalize);
+        Statement statement = statements.get(normalized);
+        if (statement == null) {
+            statement = statements.size() < maxStatements
+                    ? statements.computeIfAbsent(normalized, key -> new Statement())
+                    : statements.computeIfAbsent(OTHER, key -> new Statement());
+        }
+        statement.count.increment();
+        statement.totalNanos.add(nanos);
+        statement.maxNanos.accumulate(nanos);
+        if (!success) {
+            statement.errors.increment();
+        }
+
+        if (nanos >= slowQueryNanos) {
+            SlowQuery slowQuery = new SlowQuery(normalized, nanos / 1_000_000, Instant.now());
+            synchronized (slowQueries) {
+                if (slowQueries.size() >= slowQueryLogSize) {
+                    slowQueries.removeFirst();
+                }
+                slowQueries.addLast(slowQuery);
+            }
+            log.warn("Slow query ({} ms): {}", slowQuery.durationMs(), normalized);
+        }
+    }
+
+    /**
+     * Статистика запросов, отсортированная по суммарному времени
+     *
+     * @return нормализованный текст запроса - показатели
+     */
+    public Map<String, Map<String, Object>> statements() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        statements.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, Statement> entry) -> entry.getValue().totalNanos.sum()).reversed())
+                .forEach(entry -> {
+                    Statement statement = entry.getValue();
+                    long count = statement.count.sum();
+                    long total = statement.totalNanos.sum();
+                    result.put(entry.getKey(), Map.of(
+                            "count", count,
+                            "errors", statement.errors.sum(),
+                            "totalMs", total / 1_000_000,
+                            "meanMs", count == 0 ? 0.0 : total / 1_000_000.0 / count,
+                            "maxMs", statement.maxNanos.get() / 1_000_000
+                    ));
+                });
+        return result;
+    }
+
+    /**
+     * Последние медленные запросы (сначала новые)
+     */
+    public List<SlowQuery> slowQueries() {
+        synchronized (slowQueries) {
+            List<SlowQuery> result = new ArrayList<>(slowQueries);
+            Collections.reverse(result);
+            return result;
+        }
+    }
+
+    /**
+     * Сбрасывает статистику
+     */
+    public void reset() {
+        statements.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * Нормализует текст запроса
+     *
+     * @param sql текст запроса
+     * @return текст без литералов и с одним параметром в списках
+     */
+    static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = WHITESPACE.matcher(result).replaceAll(" ").trim();
+        result = PARAMETER_LIST.matcher(result).replaceAll("(?)");
+        result = VALUES_LIST.matcher(result).replaceAll("$1");
+        return result;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.mag.taskList.config.jdbc;
+
+import com.mag.taskList.config.datasource.ReplicaMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/jdbc), который отображает состояние
+ * пулов соединений, статистику запросов (по суммарному времени)
+ * и последние медленные запросы.
+ * Гистограммы времени получения соединения доступны в /actuator/metrics
+ * (hikaricp.connections.acquire).
+ */
+@Endpoint(id = "jdbc")
+public class JdbcStatsEndpoint {
+
+    private final JdbcStatistics statistics;
+    private final DataSource dataSource;
+    private final ObjectProvider<ReplicaMonitor> replicaMonitor;
+
+    public JdbcStatsEndpoint(JdbcStatistics statistics,
+                             DataSource dataSource,
+                             ObjectProvider<ReplicaMonitor> replicaMonitor) {
+        this.statistics = statistics;
+        this.dataSource = dataSource;
+        this.replicaMonitor = replicaMonitor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> jdbc() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pools", pools());
+        result.put("statements", statistics.statements());
+        result.put("slowQueries", statistics.slowQueries());
+        return result;
+    }
+
+    /**
+     * Сбрасывает статистику запросов
+     */
+    @DeleteOperation
+    public void reset() {
+        statistics.reset();
+    }
+
+    private Map<String, Object> pools() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource primary = dataSource.unwrap(HikariDataSource.class);
+                pools.put(primary.getPoolName(), pool(primary));
+            }
+        } catch (SQLException e) {
+            // Пул основной БД недоступен для просмотра
+        }
+        ReplicaMonitor monitor = replicaMonitor.getIfAvailable();
+        if (monitor != null) {
+            for (ReplicaMonitor.Replica replica : monitor.getReplicas()) {
+                Map<String, Object> pool = new LinkedHashMap<>();
+                if (replica.getDataSource() instanceof HikariDataSource hikari) {
+                    pool.putAll(pool(hikari));
+                }
+                pool.put("healthy", replica.isHealthy());
+                pool.put("lagMs", replica.getLagMillis());
+                pools.put(replica.getName(), pool);
+            }
+        }
+        return pools;
+    }
+
+    private static Map<String, Object> pool(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return Map.of("started", false);
+        }
+        return Map.of(
+                "active", pool.getActiveConnections(),
+                "idle", pool.getIdleConnections(),
+                "pending", pool.getThreadsAwaitingConnection(),
+                "total", pool.getTotalConnections(),
+                "max", dataSource.getMaximumPoolSize()
+        );
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.mag.taskList.domain.exception;
+
+/**
+ * Исключение, которое будет отображено, если
+ * ресурс был изменен другим запросом
+ * (версия ресурса не совпадает с ожидаемой).
+ */
+public class ResourceConflictException extends RuntimeException {
+
+    /**
+     * Конструктор с параметрами (создание объекта)
+     * @param message сообщение, которое необходимо отобразить
+     */
+    public ResourceConflictException(String message) {
+        super(message);
+    }
+}
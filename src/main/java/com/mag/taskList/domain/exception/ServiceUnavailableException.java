@@ -0,0 +1,16 @@
+package com.mag.taskList.domain.exception;
+
+/**
+ * Исключение, которое будет отображено, если
+ * сервер временно перегружен и не может обработать запрос.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    /**
+     * Конструктор с параметрами (создание объекта)
+     * @param message сообщение, которое необходимо отобразить
+     */
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -29,5 +29,9 @@ public class Task implements Serializable {
      * Дата, когда задача должна быть выполнена
      */
     private LocalDateTime expirationDate;
+    /**
+     * Версия задачи. Увеличивается при каждом изменении
+     */
+    private Long version;
 
 }
@@ -0,0 +1,36 @@
+package com.mag.taskList.domain.task;
+
+import lombok.Data;
+
+/**
+ * Изменение задачи пользователя (запись журнала task_changes)
+ */
+@Data
+public class TaskChange {
+
+    /**
+     * Тип изменения
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    /**
+     * Номер изменения в ленте (позиция для следующего запроса)
+     */
+    private Long seq;
+    /**
+     * Идентификатор владельца задачи
+     */
+    private Long userId;
+    private Long taskId;
+    private Type type;
+    /**
+     * Текущее состояние задачи (null, если задача удалена
+     * или не загружалась)
+     */
+    private Task task;
+
+}
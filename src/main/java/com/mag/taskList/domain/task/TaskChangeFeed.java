@@ -0,0 +1,28 @@
+package com.mag.taskList.domain.task;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Изменения задач пользователя после указанной позиции
+ */
+@Data
+public class TaskChangeFeed {
+
+    /**
+     * Изменения по возрастанию номера. Для каждой задачи
+     * возвращается только последнее изменение.
+     */
+    private List<TaskChange> changes;
+    /**
+     * Позиция для следующего запроса
+     */
+    private Long cursor;
+    /**
+     * Изменения после позиции клиента уже удалены из журнала.
+     * Клиент должен заново загрузить список задач.
+     */
+    private boolean reset;
+
+}
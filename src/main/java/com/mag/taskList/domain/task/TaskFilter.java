@@ -0,0 +1,58 @@
+package com.mag.taskList.domain.task;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Параметры выборки задач пользователя: фильтры, сортировка
+ * и позиция (cursor), после которой начинается страница.
+ */
+@Data
+public class TaskFilter {
+
+    /**
+     * Порядок задач на странице
+     */
+    public enum Sort {
+        /**
+         * По идентификатору
+         */
+        ID,
+        /**
+         * По сроку выполнения (задачи без срока - в конце), затем по идентификатору
+         */
+        EXPIRATION_DATE
+    }
+
+    /**
+     * Статус задачи
+     */
+    private Status status;
+    /**
+     * Срок выполнения - не раньше
+     */
+    private LocalDateTime expirationFrom;
+    /**
+     * Срок выполнения - не позже
+     */
+    private LocalDateTime expirationTo;
+
+    private Sort sort = Sort.ID;
+
+    /**
+     * Идентификатор последней задачи предыдущей страницы
+     */
+    private Long afterId;
+    /**
+     * Срок выполнения последней задачи предыдущей страницы
+     * (при сортировке по сроку выполнения)
+     */
+    private LocalDateTime afterExpirationDate;
+
+    /**
+     * Максимальное количество задач на странице
+     */
+    private int limit = 100;
+
+}
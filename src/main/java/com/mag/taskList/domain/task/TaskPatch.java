@@ -0,0 +1,58 @@
+package com.mag.taskList.domain.task;
+
+import lombok.Data;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Частичное изменение задачи (JSON Merge Patch).
+ * Содержит только поля, переданные клиентом.
+ * Значение null означает, что поле необходимо очистить.
+ */
+@Data
+public class TaskPatch {
+
+    /**
+     * Поля задачи, которые можно изменить
+     */
+    public enum Field {
+        TITLE,
+        DESCRIPTION,
+        STATUS,
+        EXPIRATION_DATE
+    }
+
+    /**
+     * Идентификатор задачи
+     */
+    private Long id;
+    /**
+     * Ожидаемая версия задачи (null - любая версия)
+     */
+    private Long version;
+    /**
+     * Новые значения полей
+     */
+    private final Map<Field, Object> values = new EnumMap<>(Field.class);
+
+    /**
+     * Задает новое значение поля
+     *
+     * @param field поле
+     * @param value значение (или null)
+     */
+    public void set(Field field, Object value) {
+        values.put(field, value);
+    }
+
+    /**
+     * Проверяет, что клиент не передал ни одного поля
+     *
+     * @return true, если изменений нет
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.mag.taskList.domain.user;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Данные пользователя, необходимые для аутентификации.
+ * Загружаются и кэшируются отдельно от пользователя ({@link User}),
+ * поэтому вход и проверка токенов не читают профиль и задачи пользователя.
+ */
+@Data
+public class UserCredentials implements Serializable {
+
+    private Long id;
+
+    private String name;
+    private String username;
+    /**
+     * Хеш пароля
+     */
+    private String password;
+
+    /**
+     * Список ролей
+     */
+    private Set<Role> roles;
+}
@@ -0,0 +1,30 @@
+package com.mag.taskList.repository;
+
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+
+/**
+ * Параметр запроса - массив bigint, используется в условии "= ANY(:ids)".
+ * В отличие от списка в IN (:ids), параметр один, поэтому текст запроса
+ * не зависит от количества идентификаторов и подготовленный запрос
+ * переиспользуется.
+ * Параметр передается с типом {@link Types#ARRAY}.
+ */
+public class BigintArray extends AbstractSqlTypeValue {
+
+    private final Long[] values;
+
+    public BigintArray(Collection<Long> values) {
+        this.values = values.toArray(new Long[0]);
+    }
+
+    @Override
+    protected Object createTypeValue(Connection connection, int sqlType, String typeName) throws SQLException {
+        return connection.createArrayOf("bigint", values);
+    }
+
+}
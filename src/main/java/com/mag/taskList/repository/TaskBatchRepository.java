@@ -0,0 +1,93 @@
+package com.mag.taskList.repository;
+
+import com.mag.taskList.domain.task.Task;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Массовое создание задач.
+ * Идентификаторы выделяются одним запросом к последовательности,
+ * задачи и связи с пользователем вставляются многострочными INSERT.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TaskBatchRepository {
+
+    /**
+     * Количество строк в одном INSERT.
+     * Ограничено числом параметров запроса PostgreSQL (32767).
+     */
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Создает задачи и закрепляет их за пользователем.
+     * Идентификаторы записываются в переданные задачи.
+     * Метод нужно вызывать в транзакции.
+     *
+     * @param tasks  задачи
+     * @param userId идентификатор пользователя
+     */
+    public void createAll(List<Task> tasks, Long userId) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        List<Long> ids = allocateIds(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setId(ids.get(i));
+            // Значение по умолчанию столбца version
+            tasks.get(i).setVersion(0L);
+        }
+        for (int from = 0; from < tasks.size(); from += ROWS_PER_INSERT) {
+            List<Task> chunk = tasks.subList(from, Math.min(from + ROWS_PER_INSERT, tasks.size()));
+            insertTasks(chunk);
+            assignToUser(chunk, userId);
+        }
+    }
+
+    /**
+     * Выделяет блок идентификаторов задач (один запрос)
+     *
+     * @param count количество идентификаторов
+     * @return идентификаторы
+     */
+    private List<Long> allocateIds(int count) {
+        return jdbcTemplate.queryForList("""
+                SELECT nextval(pg_get_serial_sequence('tasks', 'id'))
+                FROM generate_series(1, ?)
+                """, Long.class, count);
+    }
+
+    private void insertTasks(List<Task> chunk) {
+        String sql = "INSERT INTO tasks (id, title, description, status, expiration_date) VALUES "
+                + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?, ?)"));
+        List<Object> args = new ArrayList<>(chunk.size() * 5);
+        for (Task task : chunk) {
+            args.add(task.getId());
+            args.add(task.getTitle());
+            args.add(task.getDescription());
+            args.add(task.getStatus().name());
+            args.add(task.getExpirationDate() == null ? null : Timestamp.valueOf(task.getExpirationDate()));
+        }
+        jdbcTemplate.update(sql, args.toArray());
+    }
+
+    private void assignToUser(List<Task> chunk, Long userId) {
+        String sql = "INSERT INTO users_tasks (user_id, task_id) VALUES "
+                + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)"));
+        List<Object> args = new ArrayList<>(chunk.size() * 2);
+        for (Task task : chunk) {
+            args.add(userId);
+            args.add(task.getId());
+        }
+        jdbcTemplate.update(sql, args.toArray());
+    }
+
+}
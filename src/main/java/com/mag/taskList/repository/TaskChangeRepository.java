@@ -0,0 +1,225 @@
+package com.mag.taskList.repository;
+
+import com.mag.taskList.domain.task.TaskChange;
+import com.mag.taskList.repository.mappers.TaskRowMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Журнал изменений задач (таблица task_changes).
+ * Изменения записываются в транзакции, изменяющей задачи,
+ * и публикуются ретранслятором, который присваивает им номера (seq).
+ */
+@Repository
+@RequiredArgsConstructor
+public class TaskChangeRepository {
+
+
+    /**
+     * Ключ рекомендательной блокировки: публикацию выполняет
+     * только один узел одновременно
+     */
+    private static final long RELAY_LOCK_KEY = 0x7461736B4C6F67L;
+
+    /**
+     * Изменение записывается для владельца задачи
+     */
+    private static final String RECORD = """
+            INSERT INTO task_changes (user_id, task_id, type)
+            SELECT ut.user_id, ut.task_id, :type
+            FROM users_tasks ut
+            WHERE ut.task_id = ANY(:taskIds)
+            RETURNING seq, user_id, task_id, type
+            """;
+
+    private static final String TRY_LOCK = """
+            SELECT pg_try_advisory_xact_lock(:key)
+            """;
+
+    /**
+     * Присваивает номера неопубликованным изменениям.
+     * Текущее состояние задач загружается тем же запросом.
+     */
+    private static final String CLAIM = """
+            WITH claimed AS (
+                UPDATE task_changes
+                SET seq = nextval('task_changes_seq')
+                WHERE id IN (SELECT id
+                             FROM task_changes
+                             WHERE seq IS NULL
+                             ORDER BY id
+                             LIMIT :limit)
+                RETURNING seq, user_id, task_id, type)
+            SELECT c.seq,
+                   c.user_id,
+                   c.task_id           as change_task_id,
+                   c.type,
+                   t.id                as task_id,
+                   t.title             as task_title,
+                   t.description       as task_description,
+                   t.expiration_date   as task_expiration_date,
+                   t.status            as task_status,
+                   t.version           as task_version
+            FROM claimed c
+                     LEFT JOIN tasks t on t.id = c.task_id
+            ORDER BY c.seq
+            """;
+
+    /**
+     * Последнее изменение каждой задачи пользователя после позиции.
+     * Состояние задачи загружается тем же запросом.
+     */
+    private static final String FIND_BY_USER_ID = """
+            SELECT c.seq,
+                   c.user_id,
+                   c.task_id           as change_task_id,
+                   c.type,
+                   t.id                as task_id,
+                   t.title             as task_title,
+                   t.description       as task_description,
+                   t.expiration_date   as task_expiration_date,
+                   t.status            as task_status,
+                   t.version           as task_version
+            FROM (SELECT DISTINCT ON (task_id) seq, user_id, task_id, type
+                  FROM task_changes
+                  WHERE user_id = :userId
+                    AND seq > :since
+                  ORDER BY task_id, seq DESC) c
+                     LEFT JOIN tasks t on t.id = c.task_id
+            ORDER BY c.seq
+            LIMIT :limit
+            """;
+
+    private static final String FIND_MIN_SEQ = """
+            SELECT min(seq) FROM task_changes
+            """;
+
+    private static final String FIND_MAX_SEQ = """
+            SELECT coalesce(max(seq), 0) FROM task_changes
+            """;
+
+    /**
+     * Удаляет устаревшие опубликованные изменения.
+     * Последнее изменение не удаляется: по нему определяется,
+     * что позиция клиента устарела.
+     */
+    private static final String DELETE_BEFORE = """
+            DELETE FROM task_changes
+            WHERE seq < (SELECT max(seq) FROM task_changes)
+              AND created_at < now() - make_interval(secs => :seconds)
+            """;
+
+    /**
+     * Изменение вместе с текущим состоянием задачи
+     * (для удаленной задачи состояние не заполняется)
+     */
+    private static final RowMapper<TaskChange> CHANGE_WITH_TASK = (rs, rowNum) -> {
+        TaskChange change = mapChange(rs, rs.getLong("change_task_id"));
+        if (rs.getObject("task_id") != null && change.getType() != TaskChange.Type.DELETED) {
+            change.setTask(TaskRowMapper.INSTANCE.mapRow(rs, rowNum));
+        }
+        return change;
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Записывает изменение задач. Метод нужно вызывать в транзакции,
+     * изменяющей задачи, пока связи задач с пользователями существуют.
+     *
+     * @param taskIds идентификаторы задач
+     * @param type    тип изменения
+     * @return записанные изменения (с владельцами задач, без номеров)
+     */
+    public List<TaskChange> record(Collection<Long> taskIds, TaskChange.Type type) {
+        return jdbcTemplate.query(RECORD, new MapSqlParameterSource()
+                        .addValue("type", type.name())
+                        .addValue("taskIds", new BigintArray(taskIds), Types.ARRAY),
+                (rs, rowNum) -> mapChange(rs, rs.getLong("task_id")));
+    }
+
+    /**
+     * Захватывает блокировку публикации до конца транзакции
+     *
+     * @return false, если публикацию выполняет другой узел
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK,
+                new MapSqlParameterSource("key", RELAY_LOCK_KEY), Boolean.class));
+    }
+
+    /**
+     * Присваивает номера неопубликованным изменениям.
+     * Метод нужно вызывать в транзакции после {@link #tryLockRelay()}.
+     *
+     * @param limit максимальное количество изменений
+     * @return изменения по возрастанию номера (с состоянием задач)
+     */
+    public List<TaskChange> claim(int limit) {
+        return jdbcTemplate.query(CLAIM, new MapSqlParameterSource("limit", limit), CHANGE_WITH_TASK);
+    }
+
+    /**
+     * Получает изменения задач пользователя после позиции
+     *
+     * @param userId идентификатор пользователя
+     * @param since  позиция клиента
+     * @param limit  максимальное количество изменений
+     * @return изменения по возрастанию номера
+     */
+    public List<TaskChange> findByUserId(Long userId, long since, int limit) {
+        return jdbcTemplate.query(FIND_BY_USER_ID, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("since", since)
+                .addValue("limit", limit), CHANGE_WITH_TASK);
+    }
+
+    /**
+     * Номер самого старого изменения в журнале
+     *
+     * @return номер или null, если журнал пуст
+     */
+    public Long findMinSeq() {
+        return jdbcTemplate.queryForObject(FIND_MIN_SEQ, new MapSqlParameterSource(), Long.class);
+    }
+
+    /**
+     * Номер последнего опубликованного изменения
+     *
+     * @return номер (0, если журнал пуст)
+     */
+    public long findMaxSeq() {
+        Long seq = jdbcTemplate.queryForObject(FIND_MAX_SEQ, new MapSqlParameterSource(), Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    /**
+     * Удаляет опубликованные изменения старше указанного срока
+     *
+     * @param retention срок хранения
+     * @return количество удаленных изменений
+     */
+    public int deleteOlderThan(Duration retention) {
+        return jdbcTemplate.update(DELETE_BEFORE, new MapSqlParameterSource("seconds", retention.toSeconds()));
+    }
+
+    private static TaskChange mapChange(ResultSet rs, long taskId) throws SQLException {
+        TaskChange change = new TaskChange();
+        change.setSeq(rs.getObject("seq", Long.class));
+        change.setUserId(rs.getLong("user_id"));
+        change.setTaskId(taskId);
+        change.setType(TaskChange.Type.valueOf(rs.getString("type")));
+        return change;
+    }
+
+}
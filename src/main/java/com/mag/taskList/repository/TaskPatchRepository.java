@@ -0,0 +1,97 @@
+package com.mag.taskList.repository;
+
+import com.mag.taskList.domain.task.Status;
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskPatch;
+import com.mag.taskList.repository.mappers.TaskRowMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Частичное изменение задачи. Запрос UPDATE содержит только
+ * переданные столбцы и возвращает измененную строку и владельца задачи
+ * (RETURNING), поэтому задачу и владельца не нужно читать повторно.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TaskPatchRepository {
+
+    /**
+     * Столбцы измененной задачи
+     */
+    private static final String RETURNING = """
+             RETURNING t.id              as task_id,
+                       t.title           as task_title,
+                       t.description     as task_description,
+                       t.expiration_date as task_expiration_date,
+                       t.status          as task_status,
+                       t.version         as task_version,
+                       ut.user_id        as owner_id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Измененная задача и ее владелец
+     *
+     * @param task    задача
+     * @param ownerId идентификатор владельца
+     */
+    public record Result(Task task, Long ownerId) {
+    }
+
+    /**
+     * Изменяет переданные поля задачи и увеличивает ее версию.
+     * Если версия указана, задача изменяется только при совпадении версии.
+     *
+     * @param patch изменения (хотя бы одно поле)
+     * @return измененная задача и ее владелец или пустой Optional,
+     * если задача не найдена или версия не совпала
+     */
+    public Optional<Result> patch(TaskPatch patch) {
+        StringBuilder sql = new StringBuilder("UPDATE tasks t SET ");
+        MapSqlParameterSource params = new MapSqlParameterSource("id", patch.getId());
+        for (Map.Entry<TaskPatch.Field, Object> entry : patch.getValues().entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case TITLE -> {
+                    sql.append("title = :title, ");
+                    params.addValue("title", value, Types.VARCHAR);
+                }
+                case DESCRIPTION -> {
+                    sql.append("description = :description, ");
+                    params.addValue("description", value, Types.VARCHAR);
+                }
+                case STATUS -> {
+                    sql.append("status = :status, ");
+                    params.addValue("status", ((Status) value).name(), Types.VARCHAR);
+                }
+                case EXPIRATION_DATE -> {
+                    sql.append("expiration_date = :expirationDate, ");
+                    params.addValue("expirationDate",
+                            value == null ? null : Timestamp.valueOf((LocalDateTime) value), Types.TIMESTAMP);
+                }
+            }
+        }
+        sql.append("version = t.version + 1 FROM users_tasks ut WHERE ut.task_id = t.id AND t.id = :id");
+        if (patch.getVersion() != null) {
+            sql.append(" AND t.version = :version");
+            params.addValue("version", patch.getVersion());
+        }
+        sql.append(RETURNING);
+
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) ->
+                        new Result(TaskRowMapper.INSTANCE.mapRow(rs, rowNum), rs.getLong("owner_id")))
+                .stream()
+                .findFirst();
+    }
+
+}
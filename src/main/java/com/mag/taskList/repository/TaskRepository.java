@@ -1,32 +1,111 @@
 package com.mag.taskList.repository;
 
 import com.mag.taskList.domain.task.Task;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Репозиторий задач. Реализован на JdbcTemplate
+ * ({@link com.mag.taskList.repository.impl.TaskRepositoryImpl}).
+ */
+public interface TaskRepository {
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+    Optional<Task> findById(Long id);
 
+    /**
+     * Получает текущую версию задачи
+     *
+     * @param id идентификатор задачи
+     * @return версия
+     */
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Получает задачи по идентификаторам
+     *
+     * @param ids идентификаторы задач
+     * @return найденные задачи
+     */
+    List<Task> findAllById(Collection<Long> ids);
 
     /**
-     * Получает все задачи, закрепленные за определенным пользователем.
-     * Hibernate самостоятельно преобразует результат в список задач.
+     * Получает все задачи, закрепленные за определенным пользователем
      *
      * @param userId идентификатор пользователя
      * @return список задач
      */
-    @Query(value = """
-            SELECT * FROM tasks t
-            JOIN users_tasks ut ON ut.task_id = t.id
-            WHERE ut.user_id = :userId
-            """, nativeQuery = true)
-    List<Task> findAllByUserId(@Param("userId") Long userId);
+    List<Task> findAllByUserId(Long userId);
+
+    /**
+     * Получает идентификаторы задач пользователя (по возрастанию)
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы задач
+     */
+    List<Long> findTaskIdsByUserId(Long userId);
+
+    /**
+     * Получает идентификатор владельца задачи
+     *
+     * @param taskId идентификатор задачи
+     * @return идентификатор пользователя
+     */
+    Optional<Long> findOwnerIdByTaskId(Long taskId);
+
+    /**
+     * Получает идентификаторы владельцев задач
+     *
+     * @param taskIds идентификаторы задач
+     * @return идентификаторы пользователей
+     */
+    List<Long> findOwnerIdsByTaskIds(Collection<Long> taskIds);
 
-    /* Методы update и create заменены на save.
-    * Метод findById имеется у JpaRepository. */
+    /**
+     * Закрепляет задачу за пользователем
+     *
+     * @param taskId идентификатор задачи
+     * @param userId идентификатор пользователя
+     */
+    void assignToUserById(Long taskId, Long userId);
+
+    /**
+     * Обновляет задачу. Если у задачи указана версия, строка обновляется,
+     * только если версия в БД совпадает с ней (без блокировки строки).
+     * Новая версия записывается в задачу, владелец возвращается
+     * тем же запросом.
+     *
+     * @param task задача
+     * @return идентификатор владельца задачи или пустой Optional,
+     * если задача не найдена или версия не совпала
+     */
+    Optional<Long> update(Task task);
+
+    /**
+     * Создает задачу. Идентификатор записывается в задачу.
+     *
+     * @param task новая задача
+     */
+    void create(Task task);
+
+    void delete(Long id);
+
+    /**
+     * Изменяет статус нескольких задач одним запросом
+     *
+     * @param taskIds идентификаторы задач
+     * @param status  новый статус
+     * @return количество измененных задач
+     */
+    int updateStatus(Collection<Long> taskIds, String status);
 
+    /**
+     * Удаляет несколько задач одним запросом
+     *
+     * @param taskIds идентификаторы задач
+     * @return количество удаленных задач
+     */
+    int deleteAllByIds(Collection<Long> taskIds);
 
 }
@@ -0,0 +1,145 @@
+package com.mag.taskList.repository;
+
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskFilter;
+import com.mag.taskList.repository.mappers.TaskRowMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Постраничная выборка задач пользователя.
+ * Страницы строятся по ключу (keyset): следующая страница начинается
+ * после последней задачи предыдущей, поэтому OFFSET не используется.
+ * Фильтры добавляются в SQL-запрос только если они заданы.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TaskSearchRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Количество строк, которое драйвер получает из курсора за один раз
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Общая часть SQL-запроса
+     */
+    private static final String SELECT = """
+            SELECT t.id              as task_id,
+                   t.title           as task_title,
+                   t.description     as task_description,
+                   t.expiration_date as task_expiration_date,
+                   t.status          as task_status,
+                   t.version         as task_version
+            FROM tasks t
+                     JOIN users_tasks ut on t.id = ut.task_id
+            WHERE ut.user_id = :userId
+            """;
+
+    /**
+     * SQL-запрос для потоковой выборки (без именованных параметров).
+     * Порядок по ut.task_id читается из первичного ключа users_tasks (user_id, task_id)
+     */
+    private static final String STREAM = SELECT.replace(":userId", "?") + " ORDER BY ut.task_id";
+
+    /**
+     * Получает страницу задач пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @param filter фильтры, сортировка и позиция страницы
+     * @return задачи (не больше filter.limit)
+     */
+    public List<Task> findPageByUserId(Long userId, TaskFilter filter) {
+        StringBuilder sql = new StringBuilder(SELECT);
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+
+        if (filter.getStatus() != null) {
+            sql.append(" AND t.status = :status");
+            params.addValue("status", filter.getStatus().name());
+        }
+        if (filter.getExpirationFrom() != null) {
+            sql.append(" AND t.expiration_date >= :expirationFrom");
+            params.addValue("expirationFrom", Timestamp.valueOf(filter.getExpirationFrom()));
+        }
+        if (filter.getExpirationTo() != null) {
+            sql.append(" AND t.expiration_date <= :expirationTo");
+            params.addValue("expirationTo", Timestamp.valueOf(filter.getExpirationTo()));
+        }
+
+        if (filter.getSort() == TaskFilter.Sort.EXPIRATION_DATE) {
+            appendExpirationCursor(sql, params, filter);
+            sql.append(" ORDER BY t.expiration_date NULLS LAST, t.id");
+        } else {
+            // Позиция и порядок по ut.task_id: страница читается диапазоном
+            // первичного ключа users_tasks (user_id, task_id) без сортировки
+            if (filter.getAfterId() != null) {
+                sql.append(" AND ut.task_id > :afterId");
+                params.addValue("afterId", filter.getAfterId());
+            }
+            sql.append(" ORDER BY ut.task_id");
+        }
+
+        sql.append(" LIMIT :limit");
+        params.addValue("limit", filter.getLimit());
+
+        return jdbcTemplate.query(sql.toString(), params, TaskRowMapper.INSTANCE);
+    }
+
+    /**
+     * Передает все задачи пользователя по одной, не загружая их в память.
+     * Строки читаются из курсора порциями по STREAM_FETCH_SIZE.
+     * PostgreSQL использует курсор только внутри транзакции,
+     * поэтому метод нужно вызывать в транзакции.
+     *
+     * @param userId идентификатор пользователя
+     * @param action обработчик задачи
+     */
+    public void streamByUserId(Long userId, Consumer<Task> action) {
+        PreparedStatementCreator statementCreator = connection -> {
+            PreparedStatement statement = connection.prepareStatement(STREAM,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setLong(1, userId);
+            return statement;
+        };
+        jdbcTemplate.getJdbcOperations().query(statementCreator,
+                (RowCallbackHandler) rs -> action.accept(TaskRowMapper.INSTANCE.mapRow(rs, 0)));
+    }
+
+    /**
+     * Условие позиции страницы при сортировке по сроку выполнения.
+     * Задачи без срока выполнения находятся в конце.
+     */
+    private void appendExpirationCursor(StringBuilder sql,
+                                        MapSqlParameterSource params,
+                                        TaskFilter filter) {
+        if (filter.getAfterId() == null) {
+            return;
+        }
+        params.addValue("afterId", filter.getAfterId());
+        if (filter.getAfterExpirationDate() == null) {
+            // Предыдущая страница закончилась на задачах без срока
+            sql.append(" AND t.expiration_date IS NULL AND t.id > :afterId");
+            return;
+        }
+        sql.append("""
+                 AND (t.expiration_date > :afterDate
+                      OR (t.expiration_date = :afterDate AND t.id > :afterId)
+                      OR t.expiration_date IS NULL)""");
+        params.addValue("afterDate", Timestamp.valueOf(filter.getAfterExpirationDate()));
+    }
+
+}
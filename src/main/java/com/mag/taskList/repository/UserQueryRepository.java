@@ -0,0 +1,153 @@
+package com.mag.taskList.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mag.taskList.domain.exception.ResourceMappingException;
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+import com.mag.taskList.repository.mappers.UserRowMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Загрузка пользователя одним запросом без декартова произведения
+ * ролей и задач. Роли собираются в массив (array), задачи - в JSON
+ * (json_agg), поэтому запрос всегда возвращает одну строку.
+ * Задачи загружаются только если их запросил вызывающий код
+ * (см. {@link Fetch}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserQueryRepository {
+
+    /**
+     * Какие связанные данные загружать вместе с пользователем
+     */
+    public enum Fetch {
+        /**
+         * Пользователь и его роли
+         */
+        ROLES,
+        /**
+         * Пользователь, его роли и задачи
+         */
+        ROLES_AND_TASKS
+    }
+
+    private static final TypeReference<List<Task>> TASK_LIST = new TypeReference<>() {
+    };
+
+    /**
+     * Пользователь и роли
+     */
+    private static final String SELECT = """
+            SELECT u.id       as user_id,
+                   u.name     as user_name,
+                   u.username as user_username,
+                   u.password as user_password,
+                   ARRAY(SELECT ur.role
+                         FROM users_roles ur
+                         WHERE ur.user_id = u.id) as user_roles
+            """;
+
+    /**
+     * Задачи пользователя в виде JSON-массива
+     */
+    private static final String SELECT_TASKS = """
+                   , (SELECT coalesce(json_agg(json_build_object(
+                                              'id', t.id,
+                                              'title', t.title,
+                                              'description', t.description,
+                                              'status', t.status,
+                                              'expirationDate', t.expiration_date,
+                                              'version', t.version)
+                                          ORDER BY t.id), '[]'::json)
+                      FROM tasks t
+                               JOIN users_tasks ut on t.id = ut.task_id
+                      WHERE ut.user_id = u.id) as user_tasks
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    /**
+     * Преобразует JSON-массив задач в список
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Находит пользователя по идентификатору
+     *
+     * @param id    идентификатор пользователя
+     * @param fetch связанные данные
+     * @return Optional
+     */
+    public Optional<User> findById(Long id, Fetch fetch) {
+        return findOne(fetch, "u.id = :id", new MapSqlParameterSource("id", id));
+    }
+
+    /**
+     * Находит пользователя по username
+     *
+     * @param username имя пользователя
+     * @param fetch    связанные данные
+     * @return Optional
+     */
+    public Optional<User> findByUsername(String username, Fetch fetch) {
+        return findOne(fetch, "u.username = :username", new MapSqlParameterSource("username", username));
+    }
+
+    /**
+     * Находит данные для аутентификации по username.
+     * Таблицы задач в запросе не используются.
+     *
+     * @param username имя пользователя
+     * @return Optional
+     */
+    public Optional<UserCredentials> findCredentialsByUsername(String username) {
+        RowMapper<UserCredentials> rowMapper = (rs, rowNum) -> {
+            User user = UserRowMapper.INSTANCE.mapRow(rs, rowNum);
+            UserCredentials credentials = new UserCredentials();
+            credentials.setId(user.getId());
+            credentials.setName(user.getName());
+            credentials.setUsername(user.getUsername());
+            credentials.setPassword(user.getPassword());
+            credentials.setRoles(user.getRoles());
+            return credentials;
+        };
+        return jdbcTemplate.query(SELECT + " FROM users u WHERE u.username = :username",
+                        new MapSqlParameterSource("username", username), rowMapper)
+                .stream()
+                .findFirst();
+    }
+
+    private Optional<User> findOne(Fetch fetch, String condition, MapSqlParameterSource params) {
+        boolean withTasks = fetch == Fetch.ROLES_AND_TASKS;
+        String sql = SELECT
+                + (withTasks ? SELECT_TASKS : "")
+                + " FROM users u WHERE " + condition;
+        RowMapper<User> rowMapper = (rs, rowNum) -> {
+            User user = UserRowMapper.INSTANCE.mapRow(rs, rowNum);
+            if (withTasks) {
+                user.setTasks(readTasks(rs.getString("user_tasks")));
+            }
+            return user;
+        };
+        return jdbcTemplate.query(sql, params, rowMapper).stream().findFirst();
+    }
+
+    private List<Task> readTasks(String json) {
+        try {
+            return objectMapper.readValue(json, TASK_LIST);
+        } catch (JsonProcessingException e) {
+            throw new ResourceMappingException("Exception while mapping user tasks.");
+        }
+    }
+
+}
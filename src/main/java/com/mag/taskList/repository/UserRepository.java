@@ -1,23 +1,39 @@
 package com.mag.taskList.repository;
 
+import com.mag.taskList.domain.user.Role;
 import com.mag.taskList.domain.user.User;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 
+/**
+ * Репозиторий пользователей. Реализован на JdbcTemplate
+ * ({@link com.mag.taskList.repository.impl.UserRepositoryImpl}).
+ * Пользователь с ролями и задачами загружается через {@link UserQueryRepository}.
+ */
+public interface UserRepository {
 
-public interface UserRepository extends JpaRepository<User, Long> {
+    Optional<User> findById(Long id);
 
     /**
-     * Поиск по username. Используется для Spring Security
+     * Поиск по username
      *
      * @param username имя пользователя
      * @return пользователь
      */
     Optional<User> findByUsername(String username);
 
+    void update(User user);
+
+    /**
+     * Создает пользователя. Идентификатор записывается в пользователя.
+     *
+     * @param user новый пользователь
+     */
+    void create(User user);
+
+    void insertUserRole(Long userId, Role role);
+
     /**
      * Проверка безопасности. Пользователь не должен
      * получать доступ к задачам, которые закреплены за
@@ -27,13 +43,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @param taskId идентификатор задачи
      * @return true или false
      */
-    @Query(value = """
-            SELECT exists(
-                          SELECT 1
-                          FROM users_tasks
-                          WHERE user_id = :userId
-                            AND task_id = :taskId)
-            """, nativeQuery = true)
-    boolean isTaskOwner(@Param("userId") Long userId, @Param("taskId") Long taskId);
+    boolean isTaskOwner(Long userId, Long taskId);
+
+    /**
+     * Считает задачи из списка, которые закреплены за пользователем
+     *
+     * @param userId  идентификатор пользователя
+     * @param taskIds идентификаторы задач
+     * @return количество задач пользователя
+     */
+    long countOwnedTasks(Long userId, Collection<Long> taskIds);
+
+    /**
+     * Обновляет хеш пароля пользователя
+     *
+     * @param id       идентификатор пользователя
+     * @param password новый хеш пароля
+     */
+    void updatePassword(Long id, String password);
+
+    void delete(Long id);
 
 }
@@ -1,87 +1,171 @@
 package com.mag.taskList.repository.impl;
 
-import com.mag.taskList.domain.exception.ResourceMappingException;
 import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.repository.BigintArray;
 import com.mag.taskList.repository.TaskRepository;
 import com.mag.taskList.repository.mappers.TaskRowMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
 
-import java.sql.*;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-//@Repository
+/**
+ * Реализация {@link TaskRepository} на JdbcTemplate.
+ * Соединения и PreparedStatement закрывает JdbcTemplate,
+ * внутри транзакции используется соединение транзакции.
+ */
+@Repository
 @RequiredArgsConstructor
 public class TaskRepositoryImpl implements TaskRepository {
 
-    private final DataSourceConfig dataSourceConfig;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
 
     /**
-     * Для выполнения SQL-запросов используется
-     * интерфейс PreparedStatement.
      * Данный запрос отображает подробную информацию
      * про задачу
      */
-    private final String FIND_BY_ID = """
+    private static final String FIND_BY_ID = """
             SELECT t.id              as task_id,
                    t.title           as task_title,
                    t.description     as task_description,
                    t.expiration_date as task_expiration_date,
-                   t.status          as task_status
+                   t.status          as task_status,
+                   t.version         as task_version
             FROM tasks t
-            WHERE id = ?
+            WHERE t.id = :id
+            """;
+
+    /**
+     * SQL-запрос, отображающий версию задачи
+     */
+    private static final String FIND_VERSION_BY_ID = """
+            SELECT version FROM tasks
+            WHERE id = :id
+            """;
+
+    /**
+     * SQL-запрос, отображающий несколько задач
+     */
+    private static final String FIND_ALL_BY_ID = """
+            SELECT t.id              as task_id,
+                   t.title           as task_title,
+                   t.description     as task_description,
+                   t.expiration_date as task_expiration_date,
+                   t.status          as task_status,
+                   t.version         as task_version
+            FROM tasks t
+            WHERE t.id = ANY(:ids)
             """;
 
     /**
      * SQL-запрос, отображающий задачи,
      * закрепленные за определенным пользователем
      */
-    private final String FIND_ALL_BY_USER_ID = """
+    private static final String FIND_ALL_BY_USER_ID = """
             SELECT t.id              as task_id,
                    t.title           as task_title,
                    t.description     as task_description,
                    t.expiration_date as task_expiration_date,
-                   t.status          as task_status
+                   t.status          as task_status,
+                   t.version         as task_version
             FROM tasks t
-                     JOIN tasklist.users_tasks ut on t.id = ut.task_id
-            WHERE ut.user_id = ?
+                     JOIN users_tasks ut on t.id = ut.task_id
+            WHERE ut.user_id = :userId
+            """;
+
+    /**
+     * SQL-запрос, отображающий идентификаторы задач пользователя
+     */
+    private static final String FIND_TASK_IDS_BY_USER_ID = """
+            SELECT task_id FROM users_tasks
+            WHERE user_id = :userId
+            ORDER BY task_id
+            """;
+
+    /**
+     * SQL-запрос, отображающий владельца задачи
+     */
+    private static final String FIND_OWNER_ID_BY_TASK_ID = """
+            SELECT user_id FROM users_tasks
+            WHERE task_id = :taskId
+            """;
+
+    /**
+     * SQL-запрос, отображающий владельцев нескольких задач
+     */
+    private static final String FIND_OWNER_IDS_BY_TASK_IDS = """
+            SELECT DISTINCT user_id FROM users_tasks
+            WHERE task_id = ANY(:taskIds)
             """;
 
     /**
      * SQL-запрос, позволяющий назначить задачу пользователю
      */
-    private final String ASSIGN = """
+    private static final String ASSIGN = """
             INSERT INTO users_tasks (task_id, user_id)
-            VALUES (?, ?)
+            VALUES (:taskId, :userId)
             """;
 
     /**
-     * SQL-запрос, обновляющий данные (задачу)
+     * SQL-запрос, обновляющий данные (задачу).
+     * Если версия передана, строка обновляется только при совпадении версии.
+     * Возвращает новую версию и владельца задачи.
      */
-    private final String UPDATE = """
-            UPDATE tasks
-            SET title = ?,
-                description = ?,
-                expiration_date = ?,
-                status = ?
-            WHERE id = ?
+    private static final String UPDATE = """
+            UPDATE tasks t
+            SET title = :title,
+                description = :description,
+                expiration_date = :expirationDate,
+                status = :status,
+                version = t.version + 1
+            FROM users_tasks ut
+            WHERE ut.task_id = t.id
+              AND t.id = :id
+              AND (CAST(:version AS bigint) IS NULL OR t.version = :version)
+            RETURNING t.version, ut.user_id
             """;
 
-
     /**
      * SQL-запрос, который создает новую задачу
      */
-    private final String CREATE = """
+    private static final String CREATE = """
             INSERT INTO tasks (title, description, expiration_date, status)
-            VALUES (?, ?, ?, ?)
+            VALUES (:title, :description, :expirationDate, :status)
             """;
 
     /**
      * SQL-запрос, который удаляет определенную задачу
      */
-    private final String DELETE = """
+    private static final String DELETE = """
             DELETE FROM tasks
-            WHERE id = ?
+            WHERE id = :id
+            """;
+
+    /**
+     * SQL-запрос, изменяющий статус нескольких задач
+     */
+    private static final String UPDATE_STATUS = """
+            UPDATE tasks
+            SET status = :status,
+                version = version + 1
+            WHERE id = ANY(:taskIds)
+            """;
+
+    /**
+     * SQL-запрос, удаляющий несколько задач
+     */
+    private static final String DELETE_ALL_BY_IDS = """
+            DELETE FROM tasks
+            WHERE id = ANY(:taskIds)
             """;
 
     /**
@@ -92,21 +176,38 @@ public class TaskRepositoryImpl implements TaskRepository {
      */
     @Override
     public Optional<Task> findById(Long id) {
-        try {
-            // Получить соединение
-            Connection connection = dataSourceConfig.getConnection();
-            // Создать PreparedStatement
-            PreparedStatement statement = connection.prepareStatement(FIND_BY_ID);
-            // Передать id для подстановки в запрос
-            statement.setLong(1, id);
-
-            try (ResultSet rs = statement.executeQuery()) {
-                return Optional.ofNullable(TaskRowMapper.mapRow(rs));
-            }
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Error while finding " +
-                    "user by id.");
+        return jdbcTemplate.query(FIND_BY_ID, new MapSqlParameterSource("id", id), TaskRowMapper.INSTANCE)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        return jdbcTemplate.queryForList(FIND_VERSION_BY_ID, new MapSqlParameterSource("id", id), Long.class)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Получает задачи по идентификаторам.
+     * Количество строк известно заранее, поэтому список создается нужного размера.
+     *
+     * @param ids идентификаторы задач
+     * @return найденные задачи
+     */
+    @Override
+    public List<Task> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
+        return jdbcTemplate.query(FIND_ALL_BY_ID, new MapSqlParameterSource()
+                .addValue("ids", new BigintArray(ids), Types.ARRAY), rs -> {
+            List<Task> tasks = new ArrayList<>(ids.size());
+            while (rs.next()) {
+                tasks.add(TaskRowMapper.INSTANCE.mapRow(rs, tasks.size()));
+            }
+            return tasks;
+        });
     }
 
     /**
@@ -117,21 +218,28 @@ public class TaskRepositoryImpl implements TaskRepository {
      */
     @Override
     public List<Task> findAllByUserId(Long userId) {
-        try {
-            // Получить соединение
-            Connection connection = dataSourceConfig.getConnection();
-            // Создать PreparedStatement
-            PreparedStatement statement = connection.prepareStatement(FIND_ALL_BY_USER_ID);
-            // Передать id для подстановки в запрос
-            statement.setLong(1, userId);
-
-            try (ResultSet rs = statement.executeQuery()) {
-                return TaskRowMapper.mapRows(rs);
-            }
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Error while finding " +
-                    "all by user id.");
-        }
+        return jdbcTemplate.query(FIND_ALL_BY_USER_ID, new MapSqlParameterSource("userId", userId),
+                TaskRowMapper::extractAll);
+    }
+
+    @Override
+    public List<Long> findTaskIdsByUserId(Long userId) {
+        return jdbcTemplate.queryForList(FIND_TASK_IDS_BY_USER_ID,
+                new MapSqlParameterSource("userId", userId), Long.class);
+    }
+
+    @Override
+    public Optional<Long> findOwnerIdByTaskId(Long taskId) {
+        return jdbcTemplate.queryForList(FIND_OWNER_ID_BY_TASK_ID,
+                        new MapSqlParameterSource("taskId", taskId), Long.class)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Long> findOwnerIdsByTaskIds(Collection<Long> taskIds) {
+        return jdbcTemplate.queryForList(FIND_OWNER_IDS_BY_TASK_IDS, new MapSqlParameterSource()
+                .addValue("taskIds", new BigintArray(taskIds), Types.ARRAY), Long.class);
     }
 
     /**
@@ -142,49 +250,28 @@ public class TaskRepositoryImpl implements TaskRepository {
      */
     @Override
     public void assignToUserById(Long taskId, Long userId) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(ASSIGN);
-            statement.setLong(1, taskId);
-            statement.setLong(2, userId);
-            statement.executeUpdate();
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Error while assigning to user.");
-        }
+        jdbcTemplate.update(ASSIGN, new MapSqlParameterSource()
+                .addValue("taskId", taskId)
+                .addValue("userId", userId));
     }
 
     /**
      * Обновляет данные о задаче
      *
      * @param task задача, которая ожидает обновление в системе
+     * @return идентификатор владельца задачи или пустой Optional,
+     * если задача не найдена или версия не совпала
      */
     @Override
-    public void update(Task task) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(UPDATE);
-            statement.setString(1, task.getTitle());
-
-            // Описание может иметь null, поэтому производим проверку
-            if (task.getDescription() == null) {
-                statement.setNull(2, Types.VARCHAR);
-            } else {
-                statement.setString(2, task.getDescription());
-            }
-
-            // Срок жизни задачи может быть null
-            if (task.getExpirationDate() == null) {
-                statement.setNull(3, Types.TIMESTAMP);
-            } else {
-                statement.setTimestamp(3, Timestamp.valueOf(task.getExpirationDate()));
-            }
-
-            statement.setString(4, task.getStatus().name());
-            statement.setLong(5, task.getId());
-            statement.executeUpdate();
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Error while updating task.");
-        }
+    public Optional<Long> update(Task task) {
+        return jdbcTemplate.query(UPDATE, taskParameters(task)
+                        .addValue("id", task.getId())
+                        .addValue("version", task.getVersion()), (rs, rowNum) -> {
+                    task.setVersion(rs.getLong("version"));
+                    return rs.getLong("user_id");
+                })
+                .stream()
+                .findFirst();
     }
 
     /**
@@ -194,40 +281,10 @@ public class TaskRepositoryImpl implements TaskRepository {
      */
     @Override
     public void create(Task task) {
-        try {
-            // Получить соединение
-            Connection connection = dataSourceConfig.getConnection();
-            // Подготовить PreparedStatement
-            PreparedStatement statement = connection.prepareStatement(CREATE, PreparedStatement.RETURN_GENERATED_KEYS);
-
-            // Установить значения для statement
-            statement.setString(1, task.getTitle());
-
-            // Описание может быть null, поэтому необходимо произвести проверку
-            if (task.getDescription() == null) {
-                statement.setNull(2, Types.VARCHAR);
-            } else {
-                statement.setString(2, task.getDescription());
-            }
-
-            // Срок жизни задачи может быть null
-            if (task.getExpirationDate() == null) {
-                statement.setNull(3, Types.TIMESTAMP);
-            } else {
-                statement.setTimestamp(3, Timestamp.valueOf(task.getExpirationDate()));
-            }
-
-            statement.setString(4, task.getStatus().name());
-            // Используется для выполнения операторов INSERT, UPDATE или DELETE
-            statement.executeUpdate();
-
-            try (ResultSet rs = statement.getGeneratedKeys()) {
-                rs.next();
-                task.setId(rs.getLong(1));
-            }
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Error while creating task.");
-        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(CREATE, taskParameters(task), keyHolder, new String[]{"id"});
+        task.setId(keyHolder.getKeyAs(Long.class));
+        task.setVersion(0L);
     }
 
     /**
@@ -237,14 +294,33 @@ public class TaskRepositoryImpl implements TaskRepository {
      */
     @Override
     public void delete(Long id) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(DELETE);
-            statement.setLong(1, id);
-            statement.executeUpdate();
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Error while deleting task.");
-        }
+        jdbcTemplate.update(DELETE, new MapSqlParameterSource("id", id));
+    }
+
+    @Override
+    public int updateStatus(Collection<Long> taskIds, String status) {
+        return jdbcTemplate.update(UPDATE_STATUS, new MapSqlParameterSource()
+                .addValue("taskIds", new BigintArray(taskIds), Types.ARRAY)
+                .addValue("status", status));
+    }
+
+    @Override
+    public int deleteAllByIds(Collection<Long> taskIds) {
+        return jdbcTemplate.update(DELETE_ALL_BY_IDS, new MapSqlParameterSource()
+                .addValue("taskIds", new BigintArray(taskIds), Types.ARRAY));
+    }
+
+    /**
+     * Параметры задачи. Описание и срок выполнения могут быть null.
+     */
+    private static MapSqlParameterSource taskParameters(Task task) {
+        return new MapSqlParameterSource()
+                .addValue("title", task.getTitle())
+                .addValue("description", task.getDescription())
+                .addValue("expirationDate", task.getExpirationDate() == null
+                        ? null
+                        : Timestamp.valueOf(task.getExpirationDate()))
+                .addValue("status", task.getStatus().name());
     }
 
 }
@@ -1,116 +1,128 @@
 package com.mag.taskList.repository.impl;
 
-import com.mag.taskList.domain.exception.ResourceMappingException;
 import com.mag.taskList.domain.user.Role;
 import com.mag.taskList.domain.user.User;
+import com.mag.taskList.repository.BigintArray;
 import com.mag.taskList.repository.UserRepository;
 import com.mag.taskList.repository.mappers.UserRowMapper;
 import lombok.RequiredArgsConstructor;
-
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.Collection;
 import java.util.Optional;
 
-//@Repository
+/**
+ * Реализация {@link UserRepository} на JdbcTemplate.
+ * Роли загружаются массивом в той же строке, что и пользователь
+ * (задачи пользователя - через {@link com.mag.taskList.repository.UserQueryRepository}).
+ */
+@Repository
 @RequiredArgsConstructor
 public class UserRepositoryImpl implements UserRepository {
 
-    /**
-     * Внедрение зависимости (DI)
-     */
-    private final DataSourceConfig dataSourceConfig;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
 
     /**
      * SQL-запрос, отображающий информацию о пользователе
      * (по его идентификатору)
      */
-    private final String FIND_BY_ID = """
-            SELECT u.id              as user_id,
-                   u.name            as user_name,
-                   u.username        as user_username,
-                   u.password        as user_password,
-                   ur.role           as user_role_role,
-                   t.id              as task_id,
-                   t.title           as task_title,
-                   t.description     as task_description,
-                   t.expiration_date as task_expiration_date,
-                   t.status          as task_status
+    private static final String FIND_BY_ID = """
+            SELECT u.id       as user_id,
+                   u.name     as user_name,
+                   u.username as user_username,
+                   u.password as user_password,
+                   ARRAY(SELECT ur.role
+                         FROM users_roles ur
+                         WHERE ur.user_id = u.id) as user_roles
             FROM users u
-                     LEFT JOIN tasklist.users_roles ur on u.id = ur.user_id
-                     LEFT JOIN tasklist.users_tasks ut on u.id = ut.user_id
-                     LEFT JOIN tasklist.tasks t on t.id = ut.task_id
-            WHERE u.id = ?
+            WHERE u.id = :id
             """;
 
     /**
      * SQL-запрос, отображающий информацию о пользователе
      * (по его username)
      */
-    private final String FIND_BY_USERNAME = """
-             SELECT u.id             as user_id,
-                   u.name            as user_name,
-                   u.username        as user_username,
-                   u.password        as user_password,
-                   ur.role           as user_role_role,
-                   t.id              as task_id,
-                   t.title           as task_title,
-                   t.description     as task_description,
-                   t.expiration_date as task_expiration_date,
-                   t.status          as task_status
+    private static final String FIND_BY_USERNAME = """
+            SELECT u.id       as user_id,
+                   u.name     as user_name,
+                   u.username as user_username,
+                   u.password as user_password,
+                   ARRAY(SELECT ur.role
+                         FROM users_roles ur
+                         WHERE ur.user_id = u.id) as user_roles
             FROM users u
-                     LEFT JOIN tasklist.users_roles ur on u.id = ur.user_id
-                     LEFT JOIN tasklist.users_tasks ut on u.id = ut.user_id
-                     LEFT JOIN tasklist.tasks t on t.id = ut.task_id
-            WHERE u.username = ?
+            WHERE u.username = :username
             """;
 
     /**
      * SQL-запрос, обновляющий данные о пользователе
      */
-    private final String UPDATE = """
+    private static final String UPDATE = """
             UPDATE users
-            SET name = ?,
-                username = ?,
-                password = ?
-            WHERE id = ?
+            SET name = :name,
+                username = :username,
+                password = :password
+            WHERE id = :id
             """;
 
     /**
      * SQL-запрос, добавляющий нового пользователя
      */
-    private final String CREATE = """
+    private static final String CREATE = """
             INSERT INTO users (name, username, password)
-            VALUES (?, ?, ?)
+            VALUES (:name, :username, :password)
             """;
 
     /**
      * SQL-запрос, который назначает пользователю
      * определенную роль
      */
-    private final String INSERT_USER_ROLE = """
+    private static final String INSERT_USER_ROLE = """
             INSERT INTO users_roles (user_id, role)
-            VALUES (?, ?)
+            VALUES (:userId, :role)
             """;
 
     /**
      * SQL-запрос, который проверяет,
      * является ли пользователь владельцем задачи
      */
-    private final String IS_TASK_OWNER = """
+    private static final String IS_TASK_OWNER = """
             SELECT exists(SELECT 1
                           FROM users_tasks
-                          WHERE user_id = ?
-                            AND task_id = ?)
+                          WHERE user_id = :userId
+                            AND task_id = :taskId)
+            """;
+
+    /**
+     * SQL-запрос, который считает задачи пользователя из списка
+     */
+    private static final String COUNT_OWNED_TASKS = """
+            SELECT count(*)
+            FROM users_tasks
+            WHERE user_id = :userId
+              AND task_id = ANY(:taskIds)
+            """;
+
+    /**
+     * SQL-запрос, обновляющий хеш пароля
+     */
+    private static final String UPDATE_PASSWORD = """
+            UPDATE users
+            SET password = :password
+            WHERE id = :id
             """;
 
     /**
      * SQL-запрос, который удаляет пользователя
      */
-    private final String DELETE = """
+    private static final String DELETE = """
             DELETE FROM users
-            WHERE id = ?
+            WHERE id = :id
             """;
 
     /**
@@ -121,22 +133,9 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public Optional<User> findById(Long id) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            // Надо передвигаться вперед и назад (по ResultSet), поэтому используем
-            // дополнительные параметры
-            PreparedStatement statement = connection.prepareStatement(FIND_BY_ID,
-                    ResultSet.TYPE_SCROLL_INSENSITIVE,
-                    ResultSet.CONCUR_READ_ONLY);
-
-            statement.setLong(1, id);
-            try (ResultSet rs = statement.executeQuery()) {
-                return Optional.ofNullable(UserRowMapper.mapRow(rs));
-            }
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while finding " +
-                    "user by id.");
-        }
+        return jdbcTemplate.query(FIND_BY_ID, new MapSqlParameterSource("id", id), UserRowMapper.INSTANCE)
+                .stream()
+                .findFirst();
     }
 
     /**
@@ -147,22 +146,10 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public Optional<User> findByUsername(String username) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            // Надо передвигаться вперед и назад (по ResultSet), поэтому используем
-            // дополнительные параметры
-            PreparedStatement statement = connection.prepareStatement(FIND_BY_USERNAME,
-                    ResultSet.TYPE_SCROLL_INSENSITIVE,
-                    ResultSet.CONCUR_READ_ONLY);
-
-            statement.setString(1, username);
-            try (ResultSet rs = statement.executeQuery()) {
-                return Optional.ofNullable(UserRowMapper.mapRow(rs));
-            }
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while finding " +
-                    "user by username.");
-        }
+        return jdbcTemplate.query(FIND_BY_USERNAME, new MapSqlParameterSource("username", username),
+                        UserRowMapper.INSTANCE)
+                .stream()
+                .findFirst();
     }
 
     /**
@@ -172,18 +159,7 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public void update(User user) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(UPDATE);
-
-            statement.setString(1, user.getName());
-            statement.setString(2, user.getUsername());
-            statement.setString(3, user.getPassword());
-            statement.setLong(4, user.getId());
-            statement.executeUpdate();
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while updating user.");
-        }
+        jdbcTemplate.update(UPDATE, userParameters(user).addValue("id", user.getId()));
     }
 
     /**
@@ -193,22 +169,9 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public void create(User user) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(CREATE,
-                    PreparedStatement.RETURN_GENERATED_KEYS);
-
-            statement.setString(1, user.getName());
-            statement.setString(2, user.getUsername());
-            statement.setString(3, user.getPassword());
-            statement.executeUpdate();
-            try (ResultSet rs = statement.getGeneratedKeys()) {
-                rs.next();
-                user.setId(rs.getLong(1));
-            }
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while creating user.");
-        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(CREATE, userParameters(user), keyHolder, new String[]{"id"});
+        user.setId(keyHolder.getKeyAs(Long.class));
     }
 
     /**
@@ -219,15 +182,9 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public void insertUserRole(Long userId, Role role) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(INSERT_USER_ROLE);
-            statement.setLong(1, userId);
-            statement.setString(2, role.name());
-            statement.executeUpdate();
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while inserting user role.");
-        }
+        jdbcTemplate.update(INSERT_USER_ROLE, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("role", role.name()));
     }
 
     /**
@@ -240,22 +197,24 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public boolean isTaskOwner(Long userId, Long taskId) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(IS_TASK_OWNER);
-            statement.setLong(1, userId);
-            statement.setLong(2, taskId);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_TASK_OWNER, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("taskId", taskId), Boolean.class));
+    }
 
-            try (ResultSet rs = statement.executeQuery()) {
-                rs.next();
-                // Получить значение из 1-й колонки
-                return rs.getBoolean(1);
-            }
+    @Override
+    public long countOwnedTasks(Long userId, Collection<Long> taskIds) {
+        Long count = jdbcTemplate.queryForObject(COUNT_OWNED_TASKS, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("taskIds", new BigintArray(taskIds), Types.ARRAY), Long.class);
+        return count == null ? 0 : count;
+    }
 
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while checking " +
-                    "if user is task owner...");
-        }
+    @Override
+    public void updatePassword(Long id, String password) {
+        jdbcTemplate.update(UPDATE_PASSWORD, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("password", password));
     }
 
     /**
@@ -264,14 +223,14 @@ public class UserRepositoryImpl implements UserRepository {
      */
     @Override
     public void delete(Long id) {
-        try {
-            Connection connection = dataSourceConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(DELETE);
-            statement.setLong(1, id);
-            statement.executeUpdate();
-        } catch (SQLException throwables) {
-            throw new ResourceMappingException("Exception while deleting user.");
-        }
+        jdbcTemplate.update(DELETE, new MapSqlParameterSource("id", id));
+    }
+
+    private static MapSqlParameterSource userParameters(User user) {
+        return new MapSqlParameterSource()
+                .addValue("name", user.getName())
+                .addValue("username", user.getUsername())
+                .addValue("password", user.getPassword());
     }
 
 }
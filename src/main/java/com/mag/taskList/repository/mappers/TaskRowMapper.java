@@ -0,0 +1,64 @@
+package com.mag.taskList.repository.mappers;
+
+import com.mag.taskList.domain.task.Status;
+import com.mag.taskList.domain.task.Task;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Преобразует строки ResultSet в задачи.
+ * Столбцы должны иметь псевдонимы task_id, task_title, task_description,
+ * task_expiration_date, task_status, task_version.
+ */
+public class TaskRowMapper implements RowMapper<Task> {
+
+    /**
+     * Общий экземпляр (класс не хранит состояние)
+     */
+    public static final TaskRowMapper INSTANCE = new TaskRowMapper();
+
+    /**
+     * Преобразует текущую строку в задачу
+     *
+     * @param rs     результат запроса
+     * @param rowNum номер строки
+     * @return задача
+     */
+    @Override
+    public Task mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Task task = new Task();
+        task.setId(rs.getLong("task_id"));
+        task.setTitle(rs.getString("task_title"));
+        task.setDescription(rs.getString("task_description"));
+        task.setStatus(Status.valueOf(rs.getString("task_status")));
+        task.setVersion(rs.getLong("task_version"));
+
+        Timestamp timestamp = rs.getTimestamp("task_expiration_date");
+        if (timestamp != null) {
+            task.setExpirationDate(timestamp.toLocalDateTime());
+        }
+        return task;
+    }
+
+    /**
+     * Получает все задачи из ResultSet (ResultSetExtractor).
+     * Метод сам перемещает курсор, поэтому его нельзя вызывать
+     * из RowMapper или RowCallbackHandler.
+     *
+     * @param rs результат запроса
+     * @return список задач
+     */
+    public static List<Task> extractAll(ResultSet rs) throws SQLException {
+        List<Task> tasks = new ArrayList<>();
+        while (rs.next()) {
+            tasks.add(INSTANCE.mapRow(rs, tasks.size()));
+        }
+        return tasks;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.mag.taskList.repository.mappers;
+
+import com.mag.taskList.domain.user.Role;
+import com.mag.taskList.domain.user.User;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Преобразует строки ResultSet в пользователей.
+ * Одна строка - один пользователь: роли передаются массивом
+ * в столбце user_roles, поэтому строки не дублируются.
+ * Столбцы должны иметь псевдонимы user_id, user_name, user_username,
+ * user_password, user_roles.
+ */
+public class UserRowMapper implements RowMapper<User> {
+
+    /**
+     * Общий экземпляр (класс не хранит состояние)
+     */
+    public static final UserRowMapper INSTANCE = new UserRowMapper();
+
+    /**
+     * Преобразует текущую строку в пользователя
+     *
+     * @param rs     результат запроса
+     * @param rowNum номер строки
+     * @return пользователь
+     */
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("user_id"));
+        user.setName(rs.getString("user_name"));
+        user.setUsername(rs.getString("user_username"));
+        user.setPassword(rs.getString("user_password"));
+        user.setRoles(mapRoles(rs.getArray("user_roles")));
+        return user;
+    }
+
+    private static Set<Role> mapRoles(Array array) throws SQLException {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        if (array == null) {
+            return roles;
+        }
+        for (Object role : (Object[]) array.getArray()) {
+            roles.add(Role.valueOf((String) role));
+        }
+        return roles;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.mag.taskList.service;
+
+import com.mag.taskList.domain.task.TaskChange;
+
+/**
+ * Подписчик на изменения задач пользователя
+ */
+public interface TaskChangeListener {
+
+    /**
+     * Задача пользователя изменена
+     * @param change изменение задачи
+     */
+    void onChange(TaskChange change);
+
+    /**
+     * Периодический вызов без изменений (например, чтобы соединение
+     * с клиентом не закрылось по неактивности)
+     */
+    default void onHeartbeat() {
+    }
+
+    /**
+     * Пропущенные изменения недоступны: клиент должен заново
+     * загрузить список задач и продолжить с указанной позиции
+     * @param cursor позиция в ленте изменений
+     */
+    default void onReset(long cursor) {
+    }
+
+    /**
+     * Подписчик не успевает получать изменения, подписка отменена.
+     * Соединение с клиентом следует закрыть
+     */
+    default void onDropped() {
+    }
+}
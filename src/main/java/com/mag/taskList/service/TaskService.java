@@ -1,8 +1,14 @@
 package com.mag.taskList.service;
 
+import com.mag.taskList.domain.task.Status;
 import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskChangeFeed;
+import com.mag.taskList.domain.task.TaskFilter;
+import com.mag.taskList.domain.task.TaskPatch;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TaskService {
 
@@ -20,11 +26,87 @@ public interface TaskService {
      */
     List<Task> getAllByUserId(Long id);
 
+    /**
+     * Получает страницу задач пользователя с учетом фильтров
+     * @param id идентификатор пользователя
+     * @param filter фильтры, сортировка и позиция страницы
+     * @return список задач (не больше filter.limit)
+     */
+    List<Task> getPageByUserId(Long id, TaskFilter filter);
+
+    /**
+     * Получает изменения задач пользователя после позиции клиента
+     * @param id идентификатор пользователя
+     * @param since позиция клиента (или null)
+     * @param limit максимальное количество изменений
+     * @return изменения и позиция для следующего запроса
+     */
+    TaskChangeFeed getChangesByUserId(Long id, Long since, int limit);
+
+    /**
+     * Подписывает на изменения задач пользователя
+     * @param id идентификатор пользователя
+     * @param since позиция клиента (или null - только новые изменения).
+     *              Изменения после нее отправляются до новых изменений
+     * @param listener подписчик
+     * @return действие, отменяющее подписку
+     */
+    Runnable subscribeToChanges(Long id, Long since, TaskChangeListener listener);
+
+    /**
+     * Передает все задачи пользователя обработчику по одной
+     * @param id идентификатор пользователя
+     * @param action обработчик задачи
+     */
+    void streamAllByUserId(Long id, Consumer<Task> action);
+
+    /**
+     * Получает версию задачи (ETag)
+     * @param id идентификатор задачи
+     * @return версия задачи
+     */
+    Long getVersionById(Long id);
+
+    /**
+     * Получает версию списка задач пользователя (ETag)
+     * @param id идентификатор пользователя
+     * @return версия списка задач
+     */
+    long getListVersionByUserId(Long id);
+
     Task update(Task task);
 
+    /**
+     * Изменяет только переданные поля задачи
+     * @param patch изменения задачи
+     * @return задача
+     */
+    Task patch(TaskPatch patch);
+
     Task create(Task task, Long userId);
 
+    /**
+     * Создает несколько задач и закрепляет их за пользователем
+     * @param tasks задачи
+     * @param userId идентификатор пользователя
+     * @return созданные задачи (с идентификаторами)
+     */
+    List<Task> createAll(List<Task> tasks, Long userId);
+
+    /**
+     * Изменяет статус нескольких задач
+     * @param ids идентификаторы задач
+     * @param status новый статус
+     */
+    void updateStatus(Collection<Long> ids, Status status);
+
     void delete(Long id);
 
+    /**
+     * Удаляет несколько задач
+     * @param ids идентификаторы задач
+     */
+    void deleteAll(Collection<Long> ids);
+
 
 }
@@ -1,6 +1,9 @@
 package com.mag.taskList.service;
 
 import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+
+import java.util.Collection;
 
 public interface UserService {
     /**
@@ -17,10 +20,32 @@ public interface UserService {
      */
     User getByUsername(String username);
 
+    /**
+     * Получить данные для аутентификации (без профиля и задач)
+     * @param username имя пользователя
+     * @return объект UserCredentials
+     */
+    UserCredentials getCredentialsByUsername(String username);
+
+    /**
+     * Получить версию пользователя (ETag) без загрузки пользователя
+     * @param id идентификатор пользователя
+     * @return версия
+     */
+    long getVersionById(Long id);
+
     User update(User user);
 
     User create(User user);
 
+    /**
+     * Сохраняет новый хеш пароля (без повторного хеширования)
+     * @param id идентификатор пользователя
+     * @param username логин пользователя
+     * @param encodedPassword хеш пароля
+     */
+    void updatePassword(Long id, String username, String encodedPassword);
+
     /**
      * Проверяем, что задача закреплена за
      * определенным пользователем
@@ -30,5 +55,13 @@ public interface UserService {
      */
     boolean isTaskOwner(Long userId, Long taskId);
 
+    /**
+     * Проверяем, что все задачи закреплены за пользователем
+     * @param userId идентификатор пользователя
+     * @param taskIds идентификаторы задач
+     * @return true или false
+     */
+    boolean isTasksOwner(Long userId, Collection<Long> taskIds);
+
     void delete(Long id);
 }
@@ -1,16 +1,30 @@
 package com.mag.taskList.service.impl;
 
-import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.exception.ServiceUnavailableException;
+import com.mag.taskList.domain.user.UserCredentials;
 import com.mag.taskList.service.AuthService;
 import com.mag.taskList.service.UserService;
+import com.mag.taskList.service.props.PasswordProperties;
 import com.mag.taskList.web.dto.auth.JwtRequest;
 import com.mag.taskList.web.dto.auth.JwtResponse;
 import com.mag.taskList.web.security.JwtTokenProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
 @RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
@@ -27,6 +41,42 @@ public class AuthServiceImpl implements AuthService {
      * {@link JwtTokenProvider} используется для создания токенов
      */
     private final JwtTokenProvider jwtTokenProvider;
+    private final PasswordProperties passwordProperties;
+
+    /**
+     * Отдельный ограниченный пул потоков для проверки паролей.
+     * Хеширование BCrypt не выполняется на потоках Tomcat, поэтому
+     * большое количество запросов на вход не блокирует остальные endpoint'ы.
+     * Если очередь заполнена, задача отклоняется сразу.
+     * Пул не регистрируется как bean: иначе Spring Boot не создаст
+     * собственный applicationTaskExecutor.
+     */
+    private ExecutorService passwordExecutor;
+
+    /**
+     * Создает пул потоков для проверки паролей
+     */
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        passwordExecutor = new ThreadPoolExecutor(
+                passwordProperties.getThreads(),
+                passwordProperties.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(passwordProperties.getQueue()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @PreDestroy
+    public void stop() {
+        passwordExecutor.shutdown();
+    }
 
     /**
      * Реализация метода, отвечающего за регистрацию пользователя
@@ -40,15 +90,14 @@ public class AuthServiceImpl implements AuthService {
 
         // Перенаправление на метод loadUserByUsername
         // (см. класс JwtUserDetailsService)
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken
-                        (loginRequest.getUsername(),
+        authenticate(new UsernamePasswordAuthenticationToken
+                (loginRequest.getUsername(),
                         loginRequest.getPassword()
-                        )
+                )
         );
 
         // Получить пользователя
-        User user = userService.getByUsername(loginRequest.getUsername());
+        UserCredentials user = userService.getCredentialsByUsername(loginRequest.getUsername());
 
         jwtResponse.setId(user.getId());
         jwtResponse.setUsername(user.getUsername());
@@ -63,6 +112,37 @@ public class AuthServiceImpl implements AuthService {
         return jwtResponse;
     }
 
+    /**
+     * Проверяет пароль в отдельном пуле потоков.
+     * Если пул перегружен, выбрасывается {@link ServiceUnavailableException}
+     *
+     * @param token логин и пароль пользователя
+     */
+    private void authenticate(UsernamePasswordAuthenticationToken token) {
+        Future<?> future;
+        try {
+            future = passwordExecutor.submit(() -> authenticationManager.authenticate(token));
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many login requests.");
+        }
+
+        try {
+            future.get(passwordProperties.getTimeout(), TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // Исключения аутентификации пробрасываются дальше
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceUnavailableException("Too many login requests.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Login interrupted.");
+        }
+    }
+
     /**
      * Реализация метода, отвечающего за обновление refresh_token
      * @param refreshToken токен
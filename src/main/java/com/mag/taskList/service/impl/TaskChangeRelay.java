@@ -0,0 +1,114 @@
+package com.mag.taskList.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mag.taskList.domain.task.TaskChange;
+import com.mag.taskList.repository.TaskChangeRepository;
+import com.mag.taskList.service.props.OutboxProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ретранслятор журнала изменений задач. Периодически присваивает
+ * номера новым изменениям (одна транзакция на пакет) и публикует
+ * пакет одним сообщением в канал Redis {@link #CHANNEL}.
+ * Публикацию выполняет один узел одновременно (рекомендательная блокировка
+ * PostgreSQL), поэтому номера растут в порядке публикации.
+ * Сообщения получает {@link TaskEventHub} каждого узла.
+ * Если сообщение не доставлено, изменение все равно доступно
+ * в ленте изменений (см. {@link TaskChangeRepository}).
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskChangeRelay {
+
+    /**
+     * Канал, в который публикуются пакеты изменений (JSON-массив)
+     */
+    public static final String CHANNEL = "task-changes";
+
+    private static final Logger log = LoggerFactory.getLogger(TaskChangeRelay.class);
+
+    private final TaskChangeRepository taskChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+
+    private ScheduledExecutorService executor;
+    private long lastCleanup;
+
+    /**
+     * Запускает ретранслятор
+     */
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-change-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRelayInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::relay, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Публикует все неопубликованные изменения пакетами
+     */
+    private void relay() {
+        try {
+            List<TaskChange> batch;
+            do {
+                batch = transactionTemplate.execute(status -> taskChangeRepository.tryLockRelay()
+                        ? taskChangeRepository.claim(properties.getBatchSize())
+                        : List.of());
+                if (batch != null && !batch.isEmpty()) {
+                    publish(batch);
+                }
+            } while (batch != null && batch.size() == properties.getBatchSize());
+            cleanup();
+        } catch (RuntimeException e) {
+            log.warn("Task change relay failed: {}", e.getMessage());
+        }
+    }
+
+    private void publish(List<TaskChange> batch) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(batch));
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot serialize task changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Удаляет устаревшие изменения (не чаще cleanupInterval)
+     */
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup < properties.getCleanupInterval().toMillis()) {
+            return;
+        }
+        lastCleanup = now;
+        int deleted = taskChangeRepository.deleteOlderThan(properties.getRetention());
+        if (deleted > 0) {
+            log.info("Deleted {} task changes older than {}", deleted, properties.getRetention());
+        }
+    }
+
+}
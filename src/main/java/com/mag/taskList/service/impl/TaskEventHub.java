@@ -0,0 +1,271 @@
+package com.mag.taskList.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mag.taskList.domain.task.TaskChange;
+import com.mag.taskList.domain.task.TaskChangeFeed;
+import com.mag.taskList.service.TaskChangeListener;
+import com.mag.taskList.service.props.TaskEventProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * Рассылка изменений задач подписчикам (соединениям SSE) этого узла.
+ * Изменения приходят из журнала изменений: ретранслятор ({@link TaskChangeRelay})
+ * публикует пронумерованные пакеты в канал Redis, который получают все узлы.
+ * Поэтому номер события совпадает с позицией в ленте изменений, и подписчик,
+ * который переподключился с последним номером, сначала получает пропущенные
+ * изменения из ленты.
+ * <p>
+ * Подписчик не занимает поток: у каждого подписчика своя ограниченная очередь,
+ * которую разбирает пул потоков доставки (одновременно не больше одного потока
+ * на подписчика). Медленный подписчик не задерживает остальных: если его очередь
+ * переполнена, подписка отменяется, и клиент переподключается с последним номером.
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskEventHub implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskEventHub.class);
+
+    private static final TypeReference<List<TaskChange>> BATCH = new TypeReference<>() {
+    };
+
+    /**
+     * Подписчики по идентификатору пользователя
+     */
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final TaskEventProperties properties;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(properties.getDeliveryThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "task-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getHeartbeatInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        listenerContainer.addMessageListener(this, new ChannelTopic(TaskChangeRelay.CHANNEL));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Подписывает на изменения задач пользователя.
+     * Если указана позиция, подписчик сначала получает изменения
+     * после нее из ленты, затем - новые изменения (без повторов).
+     *
+     * @param userId   идентификатор пользователя
+     * @param since    позиция клиента (или null - только новые изменения)
+     * @param feed     лента изменений пользователя (позиция, размер страницы - страница)
+     * @param listener подписчик
+     * @return действие, отменяющее подписку
+     */
+    public Runnable subscribe(Long userId,
+                              Long since,
+                              BiFunction<Long, Integer, TaskChangeFeed> feed,
+                              TaskChangeListener listener) {
+        Subscriber subscriber = new Subscriber(userId, since, feed, listener);
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        if (since != null) {
+            // Пропущенные изменения отправляются потоком доставки
+            subscriber.schedule();
+        }
+        return subscriber::close;
+    }
+
+    /**
+     * Пакет изменений от ретранслятора
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            deliver(objectMapper.readValue(message.getBody(), BATCH));
+        } catch (IOException e) {
+            log.warn("Cannot read task changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Добавляет изменения в очереди подписчиков. Поток Redis не ждет отправки.
+     */
+    private void deliver(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            Set<Subscriber> userSubscribers = subscribers.get(change.getUserId());
+            if (userSubscribers != null) {
+                for (Subscriber subscriber : userSubscribers) {
+                    subscriber.offer(change);
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Set<Subscriber> userSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    /**
+     * Подписчик с собственной очередью изменений
+     */
+    private final class Subscriber {
+
+        private final Long userId;
+        private final BiFunction<Long, Integer, TaskChangeFeed> feed;
+        private final TaskChangeListener listener;
+        private final Queue<TaskChange> queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        /**
+         * Очередь разбирается потоком доставки
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean heartbeat = new AtomicBoolean();
+
+        /**
+         * Позиция, с которой нужно отправить пропущенные изменения
+         * (null - отправлять не нужно). Используется только потоком доставки.
+         */
+        private Long replayFrom;
+        /**
+         * Номер последнего отправленного изменения.
+         * Используется только потоком доставки.
+         */
+        private long position;
+        private volatile boolean overflow;
+        private volatile boolean closed;
+
+        Subscriber(Long userId, Long since, BiFunction<Long, Integer, TaskChangeFeed> feed, TaskChangeListener listener) {
+            this.userId = userId;
+            this.feed = feed;
+            this.listener = listener;
+            this.replayFrom = since;
+            this.position = since == null ? 0 : since;
+        }
+
+        void offer(TaskChange change) {
+            if (!queue.offer(change)) {
+                // Подписчик не успевает получать изменения
+                overflow = true;
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeat.set(true);
+            schedule();
+        }
+
+        void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.computeIfPresent(userId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+
+        private void drain() {
+            try {
+                if (replayFrom != null) {
+                    replay(replayFrom);
+                    replayFrom = null;
+                }
+                while (!closed) {
+                    if (overflow) {
+                        close();
+                        listener.onDropped();
+                        return;
+                    }
+                    if (heartbeat.getAndSet(false)) {
+                        listener.onHeartbeat();
+                    }
+                    TaskChange change = queue.poll();
+                    if (change == null) {
+                        break;
+                    }
+                    // Изменение уже отправлено из ленты
+                    if (change.getSeq() > position) {
+                        listener.onChange(change);
+                        position = change.getSeq();
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.debug("Task change listener failed: {}", e.getMessage());
+            } finally {
+                scheduled.set(false);
+            }
+            // Изменения, добавленные после последней проверки очереди
+            if (!queue.isEmpty() || heartbeat.get() || overflow) {
+                schedule();
+            }
+        }
+
+        /**
+         * Отправляет изменения из ленты страницами. Если изменений больше
+         * replayLimit или часть из них уже удалена, клиент должен заново
+         * загрузить список задач
+         */
+        private void replay(long since) {
+            int replayed = 0;
+            while (!closed) {
+                TaskChangeFeed page = feed.apply(since, properties.getReplayPageSize());
+                if (page.isReset() || replayed >= properties.getReplayLimit()) {
+                    position = page.getCursor();
+                    listener.onReset(position);
+                    return;
+                }
+                for (TaskChange change : page.getChanges()) {
+                    listener.onChange(change);
+                }
+                replayed += page.getChanges().size();
+                position = page.getCursor();
+                since = position;
+                if (page.getChanges().size() < properties.getReplayPageSize()) {
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
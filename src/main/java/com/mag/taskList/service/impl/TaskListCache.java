@@ -0,0 +1,372 @@
+package com.mag.taskList.service.impl;
+
+import com.mag.taskList.config.cache.CacheEnvelope;
+import com.mag.taskList.config.cache.CompactRedisSerializer;
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.repository.TaskRepository;
+import com.mag.taskList.service.props.LocalCacheProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Кэш списков задач пользователей.
+ * Для каждого пользователя в Redis хранится sorted set идентификаторов задач,
+ * а сами задачи - в записях кэша TaskService::getById. Чтение списка
+ * выполняется одним запросом MGET. При создании и удалении задачи
+ * список изменяется на один элемент, без повторной загрузки из БД.
+ * <p>
+ * Изменения списка и задач пользователя выполняются после фиксации транзакции
+ * и увеличивают поколение списка. Загруженные из БД список и задачи
+ * записываются, только если поколение не изменилось с начала загрузки,
+ * иначе параллельная загрузка могла бы записать список без задачи, созданной
+ * во время загрузки, или задачу, прочитанную до ее изменения. Задачи
+ * записываются, только если их нет в кэше (SET NX), и не заменяют
+ * записи, сохраненные при изменении задачи.
+ */
+@Component
+public class TaskListCache {
+
+    /**
+     * Ключ списка задач пользователя
+     */
+    private static final String LIST_KEY = CompactRedisSerializer.KEY_PREFIX + "TaskService::getAllByUserId::";
+    /**
+     * Ключ поколения списка задач пользователя
+     */
+    private static final String GENERATION_KEY =
+            CompactRedisSerializer.KEY_PREFIX + "TaskService::getAllByUserId:generation::";
+    /**
+     * Кэш задач
+     */
+    private static final String TASK_CACHE = "TaskService::getById";
+    /**
+     * Ключ задачи (совпадает с ключом кэша TaskService::getById)
+     */
+    private static final String TASK_KEY = CompactRedisSerializer.KEY_PREFIX + TASK_CACHE + "::";
+
+    /**
+     * Увеличивает поколение и добавляет идентификатор задачи,
+     * только если список уже загружен.
+     * ARGV[1] - время жизни поколения (в секундах), ARGV[2] - идентификатор
+     */
+    private static final RedisScript<Long> ADD = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return redis.call('ZADD', KEYS[1], ARGV[2], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Увеличивает поколение и удаляет идентификаторы задач из списка.
+     * ARGV[1] - время жизни поколения (в секундах), ARGV[2..] - идентификаторы
+     */
+    private static final RedisScript<Long> REMOVE = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            local removed = 0
+            for i = 2, #ARGV do
+                removed = removed + redis.call('ZREM', KEYS[1], ARGV[i])
+            end
+            return removed
+            """, Long.class);
+
+    /**
+     * Увеличивает поколение и удаляет список.
+     * ARGV[1] - время жизни поколения (в секундах)
+     */
+    private static final RedisScript<Long> EVICT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    /**
+     * Увеличивает поколения списков (задачи пользователей изменились).
+     * ARGV[1] - время жизни поколения (в секундах)
+     */
+    private static final RedisScript<Long> TOUCH = new DefaultRedisScript<>("""
+            for i = 1, #KEYS do
+                redis.call('INCR', KEYS[i])
+                redis.call('EXPIRE', KEYS[i], ARGV[1])
+            end
+            return #KEYS
+            """, Long.class);
+
+    /**
+     * Записывает задачи (только отсутствующие) и, если ARGV[3] = '1', список,
+     * если поколение не изменилось с начала загрузки.
+     * KEYS[1] - список, KEYS[2] - поколение, KEYS[3..] - записи задач;
+     * ARGV[1] - поколение ("" - отсутствовало), ARGV[2] - время жизни
+     * (в секундах), ARGV[3] - записать список, далее для каждой задачи
+     * идентификатор и значение записи
+     */
+    private static final RedisScript<Long> STORE_IF_UNCHANGED = new DefaultRedisScript<>("""
+            local generation = redis.call('GET', KEYS[2]) or ''
+            if generation ~= ARGV[1] then
+                return 0
+            end
+            local storeList = ARGV[3] == '1'
+            if storeList then
+                redis.call('DEL', KEYS[1])
+            end
+            for i = 3, #KEYS do
+                local id = ARGV[2 * i - 2]
+                if storeList then
+                    redis.call('ZADD', KEYS[1], id, id)
+                end
+                redis.call('SET', KEYS[i], ARGV[2 * i - 1], 'EX', ARGV[2], 'NX')
+            end
+            if storeList then
+                redis.call('EXPIRE', KEYS[1], ARGV[2])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * Сериализатор результата скрипта записи (целое число Redis
+     * возвращается без преобразования)
+     */
+    private static final RedisSerializer<Long> RESULT = new GenericToStringSerializer<>(Long.class);
+
+    private final TaskRepository taskRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisTemplate<String, Object> cacheRedisTemplate;
+    private final LocalCacheProperties properties;
+
+    public TaskListCache(TaskRepository taskRepository,
+                         StringRedisTemplate redisTemplate,
+                         @Qualifier("cacheRedisTemplate") RedisTemplate<String, Object> cacheRedisTemplate,
+                         LocalCacheProperties properties) {
+        this.taskRepository = taskRepository;
+        this.redisTemplate = redisTemplate;
+        this.cacheRedisTemplate = cacheRedisTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Получает задачи пользователя (по возрастанию идентификатора)
+     *
+     * @param userId идентификатор пользователя
+     * @return список задач
+     */
+    public List<Task> get(Long userId) {
+        String listKey = LIST_KEY + userId;
+        Set<String> ids = redisTemplate.opsForZSet().range(listKey, 0, -1);
+        if (ids == null || ids.isEmpty()) {
+            // Пустой список не отличается от отсутствующего, поэтому загружаем из БД
+            return load(userId);
+        }
+
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            keys.add(TASK_KEY + id);
+        }
+        List<Object> values;
+        try {
+            values = cacheRedisTemplate.opsForValue().multiGet(keys);
+        } catch (SerializationException e) {
+            // Запись более нового формата: задачи загружаются из БД
+            values = null;
+        }
+
+        List<Task> tasks = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        int i = 0;
+        for (String id : ids) {
+            Object value = values == null ? null : values.get(i++);
+            Object task = value == null ? null : CacheEnvelope.of(value).getValue();
+            if (task instanceof Task cached) {
+                tasks.add(cached);
+            } else {
+                missing.add(Long.valueOf(id));
+                // Сохраняем позицию задачи в списке
+                tasks.add(null);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            String generation = redisTemplate.opsForValue().get(GENERATION_KEY + userId);
+            Map<Long, Task> loaded = new HashMap<>();
+            for (Task task : taskRepository.findAllById(missing)) {
+                loaded.put(task.getId(), task);
+            }
+            store(userId, generation, loaded.values(), false);
+            int next = 0;
+            for (int j = 0; j < tasks.size(); j++) {
+                if (tasks.get(j) == null) {
+                    tasks.set(j, loaded.get(missing.get(next++)));
+                }
+            }
+            // Задачи, удаленные из БД, не возвращаются
+            tasks.removeIf(Objects::isNull);
+        }
+        return tasks;
+    }
+
+    /**
+     * Добавляет задачу в загруженный список пользователя
+     * (после фиксации транзакции)
+     *
+     * @param userId идентификатор пользователя
+     * @param taskId идентификатор задачи
+     */
+    public void add(Long userId, Long taskId) {
+        afterCommit(() -> redisTemplate.execute(ADD, keys(userId), ttl(), String.valueOf(taskId)));
+    }
+
+    /**
+     * Удаляет задачу из списка пользователя
+     * (после фиксации транзакции)
+     *
+     * @param userId идентификатор пользователя
+     * @param taskId идентификатор задачи
+     */
+    public void remove(Long userId, Long taskId) {
+        removeAll(userId, List.of(taskId));
+    }
+
+    /**
+     * Удаляет несколько задач из списка пользователя
+     * (одним запросом после фиксации транзакции)
+     *
+     * @param userId  идентификатор пользователя
+     * @param taskIds идентификаторы задач
+     */
+    public void removeAll(Long userId, Collection<Long> taskIds) {
+        List<String> args = new ArrayList<>(taskIds.size() + 1);
+        args.add(ttl());
+        for (Long taskId : taskIds) {
+            args.add(String.valueOf(taskId));
+        }
+        afterCommit(() -> redisTemplate.execute(REMOVE, keys(userId), args.toArray()));
+    }
+
+    /**
+     * Отмечает, что задачи пользователей изменились (после фиксации
+     * транзакции). Загрузки, начатые до изменения, не запишут
+     * прочитанные задачи в кэш. Должен вызываться до удаления
+     * записей задач из кэша, чтобы поколение увеличилось раньше.
+     *
+     * @param userIds идентификаторы пользователей
+     */
+    public void touch(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            keys.add(GENERATION_KEY + userId);
+        }
+        afterCommit(() -> redisTemplate.execute(TOUCH, keys, ttl()));
+    }
+
+    /**
+     * Удаляет список пользователя (после фиксации транзакции)
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void evict(Long userId) {
+        afterCommit(() -> redisTemplate.execute(EVICT, keys(userId), ttl()));
+    }
+
+    /**
+     * Загружает список задач из БД и записывает его в Redis.
+     * Поколение читается до запроса к БД: если во время загрузки
+     * список или задачи изменились, загруженные данные не записываются.
+     */
+    private List<Task> load(Long userId) {
+        String generation = redisTemplate.opsForValue().get(GENERATION_KEY + userId);
+        List<Task> tasks = new ArrayList<>(taskRepository.findAllByUserId(userId));
+        tasks.sort((left, right) -> Long.compare(left.getId(), right.getId()));
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        store(userId, generation, tasks, true);
+        return tasks;
+    }
+
+    /**
+     * Записывает задачи в кэш TaskService::getById (только отсутствующие)
+     * и, если нужно, список задач одним скриптом, если поколение
+     * не изменилось. Записи задач попадают в L1 при первом чтении из Redis.
+     *
+     * @param userId     идентификатор пользователя
+     * @param generation поколение, прочитанное до запроса к БД (или null)
+     * @param tasks      задачи
+     * @param storeList  записать список задач
+     */
+    private void store(Long userId, String generation, Collection<Task> tasks, boolean storeList) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) cacheRedisTemplate.getValueSerializer();
+        long now = System.currentTimeMillis();
+
+        List<String> keys = new ArrayList<>(tasks.size() + 2);
+        keys.addAll(keys(userId));
+        List<byte[]> args = new ArrayList<>(tasks.size() * 2 + 3);
+        args.add(bytes(generation == null ? "" : generation));
+        args.add(bytes(ttl()));
+        args.add(bytes(storeList ? "1" : "0"));
+        for (Task task : tasks) {
+            keys.add(TASK_KEY + task.getId());
+            args.add(bytes(String.valueOf(task.getId())));
+            args.add(valueSerializer.serialize(new CacheEnvelope(task, now, 0)));
+        }
+        cacheRedisTemplate.execute(STORE_IF_UNCHANGED, RedisSerializer.byteArray(), RESULT, keys, args.toArray());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> keys(Long userId) {
+        return List.of(LIST_KEY + userId, GENERATION_KEY + userId);
+    }
+
+    /**
+     * Время жизни списка и поколения (в секундах)
+     */
+    private String ttl() {
+        return String.valueOf(properties.getRedisTtl().toSeconds());
+    }
+
+    /**
+     * Выполняет действие после фиксации транзакции
+     * (или сразу, если транзакция не выполняется)
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+}
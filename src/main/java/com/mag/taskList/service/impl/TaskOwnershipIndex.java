@@ -0,0 +1,251 @@
+package com.mag.taskList.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mag.taskList.repository.TaskRepository;
+import com.mag.taskList.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Индекс владельцев задач, который хранится в памяти приложения.
+ * Для каждого активного пользователя хранится отсортированный массив
+ * идентификаторов его задач, поэтому проверка владельца выполняется
+ * бинарным поиском, без обращения к Redis или БД.
+ * Массивы не изменяются: при добавлении и удалении задачи
+ * создается новый массив (copy-on-write).
+ * Отрицательные ответы БД (задача не принадлежит пользователю)
+ * кэшируются на короткое время, чтобы перебор чужих идентификаторов
+ * не приводил к запросу в БД на каждую попытку.
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskOwnershipIndex {
+
+    /**
+     * Максимальное количество пользователей в индексе
+     */
+    private static final int MAX_USERS = 100_000;
+
+    /**
+     * Максимальное количество отрицательных ответов в кэше
+     */
+    private static final int MAX_NOT_OWNED = 100_000;
+
+    /**
+     * Время жизни отрицательного ответа. Задача, созданная на другом
+     * узле приложения, может не находиться в течение этого времени.
+     */
+    private static final Duration NOT_OWNED_TTL = Duration.ofSeconds(5);
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Ключ - идентификатор пользователя,
+     * значение - отсортированные идентификаторы задач.
+     * При переполнении вытесняются давно не используемые пользователи.
+     */
+    private final ConcurrentMap<Long, long[]> index = Caffeine.newBuilder()
+            .maximumSize(MAX_USERS)
+            .<Long, long[]>build()
+            .asMap();
+
+    /**
+     * Пары (пользователь, задача), для которых БД недавно
+     * ответила, что задача не принадлежит пользователю
+     */
+    private final Cache<Ownership, Boolean> notOwned = Caffeine.newBuilder()
+            .maximumSize(MAX_NOT_OWNED)
+            .expireAfterWrite(NOT_OWNED_TTL)
+            .build();
+
+    /**
+     * Ключ кэша отрицательных ответов
+     */
+    private record Ownership(Long userId, Long taskId) {
+    }
+
+    /**
+     * Проверяет, является ли пользователь владельцем задачи
+     *
+     * @param userId идентификатор пользователя
+     * @param taskId идентификатор задачи
+     * @return true - задача принадлежит пользователю
+     */
+    public boolean isOwner(Long userId, Long taskId) {
+        long[] taskIds = index.get(userId);
+        if (taskIds == null) {
+            // Индекс пользователя только что загружен из БД
+            return Arrays.binarySearch(load(userId), taskId) >= 0;
+        }
+        if (Arrays.binarySearch(taskIds, taskId) >= 0) {
+            return true;
+        }
+        Ownership ownership = new Ownership(userId, taskId);
+        if (notOwned.getIfPresent(ownership) != null) {
+            return false;
+        }
+        // Задача могла быть создана на другом узле приложения
+        if (userRepository.isTaskOwner(userId, taskId)) {
+            add(userId, taskId);
+            return true;
+        }
+        notOwned.put(ownership, Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * Проверяет, является ли пользователь владельцем всех задач.
+     * Задачи, которых нет в индексе, проверяются
+     * одним запросом к БД.
+     *
+     * @param userId  идентификатор пользователя
+     * @param taskIds идентификаторы задач (без повторов)
+     * @return true - все задачи принадлежат пользователю
+     */
+    public boolean isOwnerOfAll(Long userId, Collection<Long> taskIds) {
+        long[] ownedIds = index.get(userId);
+        if (ownedIds == null) {
+            ownedIds = load(userId);
+        }
+        List<Long> missingIds = new ArrayList<>();
+        for (Long taskId : taskIds) {
+            if (Arrays.binarySearch(ownedIds, taskId) >= 0) {
+                continue;
+            }
+            if (notOwned.getIfPresent(new Ownership(userId, taskId)) != null) {
+                return false;
+            }
+            missingIds.add(taskId);
+        }
+        if (missingIds.isEmpty()) {
+            return true;
+        }
+        // Задачи могли быть созданы на другом узле приложения
+        long count = userRepository.countOwnedTasks(userId, missingIds);
+        if (count == missingIds.size()) {
+            addAll(userId, missingIds);
+            return true;
+        }
+        if (count == 0) {
+            // Ни одна из задач не принадлежит пользователю
+            for (Long taskId : missingIds) {
+                notOwned.put(new Ownership(userId, taskId), Boolean.TRUE);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавляет задачу в индекс пользователя (если индекс загружен)
+     *
+     * @param userId идентификатор пользователя
+     * @param taskId идентификатор задачи
+     */
+    public void add(Long userId, Long taskId) {
+        notOwned.invalidate(new Ownership(userId, taskId));
+        index.computeIfPresent(userId, (key, taskIds) -> {
+            int position = Arrays.binarySearch(taskIds, taskId);
+            if (position >= 0) {
+                return taskIds;
+            }
+            int insertAt = -position - 1;
+            long[] result = new long[taskIds.length + 1];
+            System.arraycopy(taskIds, 0, result, 0, insertAt);
+            result[insertAt] = taskId;
+            System.arraycopy(taskIds, insertAt, result, insertAt + 1, taskIds.length - insertAt);
+            return result;
+        });
+    }
+
+    /**
+     * Добавляет несколько задач в индекс пользователя (если индекс загружен)
+     *
+     * @param userId  идентификатор пользователя
+     * @param taskIds идентификаторы задач
+     */
+    public void addAll(Long userId, Collection<Long> taskIds) {
+        for (Long taskId : taskIds) {
+            notOwned.invalidate(new Ownership(userId, taskId));
+        }
+        index.computeIfPresent(userId, (key, ownedIds) -> {
+            long[] result = Arrays.copyOf(ownedIds, ownedIds.length + taskIds.size());
+            int size = ownedIds.length;
+            for (Long taskId : taskIds) {
+                result[size++] = taskId;
+            }
+            Arrays.sort(result);
+            return Arrays.stream(result).distinct().toArray();
+        });
+    }
+
+    /**
+     * Удаляет задачу из индекса пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @param taskId идентификатор задачи
+     */
+    public void remove(Long userId, Long taskId) {
+        index.computeIfPresent(userId, (key, taskIds) -> {
+            int position = Arrays.binarySearch(taskIds, taskId);
+            if (position < 0) {
+                return taskIds;
+            }
+            long[] result = new long[taskIds.length - 1];
+            System.arraycopy(taskIds, 0, result, 0, position);
+            System.arraycopy(taskIds, position + 1, result, position, taskIds.length - position - 1);
+            return result;
+        });
+    }
+
+    /**
+     * Удаляет несколько задач из индекса пользователя
+     *
+     * @param userId  идентификатор пользователя
+     * @param taskIds идентификаторы задач
+     */
+    public void removeAll(Long userId, Collection<Long> taskIds) {
+        index.computeIfPresent(userId, (key, ownedIds) -> Arrays.stream(ownedIds)
+                .filter(taskId -> !taskIds.contains(taskId))
+                .toArray());
+    }
+
+    /**
+     * Удаляет индекс и отрицательные ответы пользователя
+     * (например, при удалении пользователя или создании пакета задач)
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void evict(Long userId) {
+        index.remove(userId);
+        notOwned.asMap().keySet().removeIf(ownership -> ownership.userId().equals(userId));
+    }
+
+    /**
+     * Загружает идентификаторы задач пользователя из БД
+     *
+     * @param userId идентификатор пользователя
+     * @return отсортированные идентификаторы задач
+     */
+    private long[] load(Long userId) {
+        List<Long> ids = taskRepository.findTaskIdsByUserId(userId);
+        long[] taskIds = new long[ids.size()];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = ids.get(i);
+        }
+        // Запрос уже сортирует идентификаторы, но порядок важен для бинарного поиска
+        Arrays.sort(taskIds);
+
+        index.putIfAbsent(userId, taskIds);
+        return taskIds;
+    }
+
+}
@@ -1,9 +1,20 @@
 package com.mag.taskList.service.impl;
 
+import com.mag.taskList.config.cache.CacheTagRegistry;
+import com.mag.taskList.domain.exception.ResourceConflictException;
 import com.mag.taskList.domain.exception.ResourceNotFoundException;
 import com.mag.taskList.domain.task.Status;
 import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskChange;
+import com.mag.taskList.domain.task.TaskChangeFeed;
+import com.mag.taskList.domain.task.TaskFilter;
+import com.mag.taskList.domain.task.TaskPatch;
+import com.mag.taskList.repository.TaskBatchRepository;
+import com.mag.taskList.repository.TaskChangeRepository;
+import com.mag.taskList.repository.TaskPatchRepository;
 import com.mag.taskList.repository.TaskRepository;
+import com.mag.taskList.repository.TaskSearchRepository;
+import com.mag.taskList.service.TaskChangeListener;
 import com.mag.taskList.service.TaskService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
@@ -12,13 +23,50 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class TaskServiceImpl implements TaskService {
 
+    /**
+     * Кэш задач по идентификатору
+     */
+    private static final String TASK_CACHE = "TaskService::getById";
+    /**
+     * Кэш версий задач
+     */
+    private static final String TASK_VERSION_CACHE = "TaskService::getVersionById";
+
     private final TaskRepository taskRepository;
+    private final TaskSearchRepository taskSearchRepository;
+    private final TaskBatchRepository taskBatchRepository;
+    private final TaskPatchRepository taskPatchRepository;
+    /**
+     * Журнал изменений задач (outbox)
+     */
+    private final TaskChangeRepository taskChangeRepository;
+    /**
+     * Рассылка изменений задач подписчикам
+     */
+    private final TaskEventHub taskEventHub;
+    private final TaskOwnershipIndex taskOwnershipIndex;
+    /**
+     * Удаляет записи кэша, которые зависят от задачи
+     * (например, пользователей со списком задач)
+     */
+    private final CacheTagRegistry cacheTagRegistry;
+    /**
+     * Списки задач пользователей (Redis)
+     */
+    private final TaskListCache taskListCache;
+    /**
+     * Версии списков задач пользователей (ETag)
+     */
+    private final UserChangeCounter userChangeCounter;
 
     /**
      * Получает задачу по идентификатору.
@@ -26,34 +74,153 @@ public class TaskServiceImpl implements TaskService {
      * {@link ResourceNotFoundException}.
      * Помимо этого, метод работает с Redis cache
      * (получает записи).
+     * Методы, которые заполняют кэш, не используют транзакции только
+     * для чтения и поэтому читают из основной БД, а не из реплики
+     * (см. {@link com.mag.taskList.config.datasource.ReplicaRoutingDataSource}).
      *
      * @param id идентификатор задачи
      * @return задача, созданная пользователем
      */
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "TaskService::getById", key = "#id")
+    @Cacheable(value = "TaskService::getById", key = "#id", sync = true)
     public Task getById(Long id) {
         return taskRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Task not found."));
     }
 
     /**
-     * Получает список задач, закрепленных за пользователем
+     * Получает версию задачи (ETag) без загрузки задачи.
+     * Версия кэшируется и удаляется из кэша после изменения задачи.
+     *
+     * @param id идентификатор задачи
+     * @return версия задачи
+     */
+    @Override
+    @Cacheable(value = TASK_VERSION_CACHE, key = "#id", sync = true)
+    public Long getVersionById(Long id) {
+        return taskRepository.findVersionById(id).orElseThrow(() -> new ResourceNotFoundException("Task not found."));
+    }
+
+    /**
+     * Получает версию списка задач пользователя (ETag).
+     * Версия увеличивается при изменении любой задачи пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @return версия списка задач
+     */
+    @Override
+    public long getListVersionByUserId(Long id) {
+        return userChangeCounter.getTasksVersion(id);
+    }
+
+    /**
+     * Получает список задач, закрепленных за пользователем.
+     * Список читается из кэша ({@link TaskListCache}),
+     * БД используется только при промахе.
      *
      * @param id идентификатор пользователя
      * @return список задач
      */
     @Override
-    @Transactional(readOnly = true)
     public List<Task> getAllByUserId(Long id) {
-        return taskRepository.findAllByUserId(id);
+        return taskListCache.get(id);
+    }
+
+    /**
+     * Получает страницу задач пользователя. Фильтры и позиция
+     * страницы передаются в SQL-запрос.
+     *
+     * @param id     идентификатор пользователя
+     * @param filter фильтры, сортировка и позиция страницы
+     * @return список задач
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Task> getPageByUserId(Long id, TaskFilter filter) {
+        return taskSearchRepository.findPageByUserId(id, filter);
+    }
+
+    /**
+     * Получает изменения задач пользователя после позиции клиента.
+     * Без позиции возвращается только текущая позиция: клиент загружает
+     * список задач и затем запрашивает изменения после нее.
+     *
+     * @param id    идентификатор пользователя
+     * @param since позиция клиента (или null)
+     * @param limit максимальное количество изменений
+     * @return изменения и позиция для следующего запроса
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public TaskChangeFeed getChangesByUserId(Long id, Long since, int limit) {
+        return readChanges(id, since, limit);
+    }
+
+    /**
+     * Подписывает на изменения задач пользователя (на всех узлах).
+     * Пропущенные изменения читаются из ленты в основной БД
+     * ({@link #readChanges} вызывается без транзакции только для чтения):
+     * отстающая реплика вернула бы позицию раньше уже отправленных
+     * изменений, и часть изменений не была бы доставлена.
+     *
+     * @param id       идентификатор пользователя
+     * @param since    позиция клиента (или null)
+     * @param listener подписчик
+     * @return действие, отменяющее подписку
+     */
+    @Override
+    public Runnable subscribeToChanges(Long id, Long since, TaskChangeListener listener) {
+        return taskEventHub.subscribe(id, since,
+                (position, limit) -> readChanges(id, position, limit), listener);
+    }
+
+    /**
+     * Читает изменения задач пользователя после позиции клиента
+     * (в текущей транзакции или, без транзакции, в основной БД)
+     */
+    private TaskChangeFeed readChanges(Long id, Long since, int limit) {
+        TaskChangeFeed feed = new TaskChangeFeed();
+        if (since == null) {
+            feed.setChanges(List.of());
+            feed.setCursor(taskChangeRepository.findMaxSeq());
+            feed.setReset(true);
+            return feed;
+        }
+        Long minSeq = taskChangeRepository.findMinSeq();
+        if (minSeq != null && since < minSeq - 1) {
+            // Часть изменений после позиции клиента уже удалена
+            feed.setChanges(List.of());
+            feed.setCursor(taskChangeRepository.findMaxSeq());
+            feed.setReset(true);
+            return feed;
+        }
+        List<TaskChange> changes = taskChangeRepository.findByUserId(id, since, limit);
+        feed.setChanges(changes);
+        feed.setCursor(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq());
+        return feed;
+    }
+
+    /**
+     * Передает все задачи пользователя обработчику по одной.
+     * Задачи читаются из курсора БД, кэш не используется.
+     *
+     * @param id     идентификатор пользователя
+     * @param action обработчик задачи
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllByUserId(Long id, Consumer<Task> action) {
+        taskSearchRepository.streamByUserId(id, action);
     }
 
     /**
-     * Обновляет задачу (редактирование задачи)
+     * Обновляет задачу (редактирование задачи).
+     * Если у задачи указана версия, задача обновляется только
+     * при совпадении версии, иначе отображается исключение
+     * {@link ResourceConflictException}. Строка не блокируется
+     * и предварительно не читается.
      *
      * @param task задача, которую необходимо обновить
-     * @return задача
+     * @return задача с новой версией
      */
     @Override
     @Transactional
@@ -63,12 +230,61 @@ public class TaskServiceImpl implements TaskService {
             // Установить статус задачи
             task.setStatus(Status.TODO);
         }
-        // Обновить задачу
-        taskRepository.update(task);
+        // Обновить задачу (запрос возвращает владельца задачи)
+        Long ownerId = taskRepository.update(task).orElseThrow(() -> {
+            if (task.getVersion() != null && taskRepository.findVersionById(task.getId()).isPresent()) {
+                return new ResourceConflictException("Task was modified by another request.");
+            }
+            return new ResourceNotFoundException("Task not found.");
+        });
+        recordChanges(List.of(task.getId()), TaskChange.Type.UPDATED);
+        List<Long> ownerIds = List.of(ownerId);
+        // Поколение увеличивается раньше, чем удаляются записи кэша
+        taskListCache.touch(ownerIds);
+        cacheTagRegistry.invalidate(List.of(CacheTagRegistry.taskTag(task.getId())),
+                List.of(TASK_VERSION_CACHE), List.of(task.getId()));
+        userChangeCounter.tasksChanged(ownerIds);
 
         return task;
     }
 
+    /**
+     * Изменяет только переданные поля задачи (одним запросом UPDATE).
+     * Измененная строка возвращается запросом и заменяет
+     * запись кэша задачи. Если версия указана и не совпадает,
+     * отображается исключение {@link ResourceConflictException}.
+     *
+     * @param patch изменения задачи
+     * @return задача
+     */
+    @Override
+    @Transactional
+    @CachePut(value = "TaskService::getById", key = "#patch.id")
+    public Task patch(TaskPatch patch) {
+        if (patch.isEmpty()) {
+            Task task = getById(patch.getId());
+            if (patch.getVersion() != null && !patch.getVersion().equals(task.getVersion())) {
+                throw new ResourceConflictException("Task was modified by another request.");
+            }
+            return task;
+        }
+        TaskPatchRepository.Result result = taskPatchRepository.patch(patch).orElseThrow(() -> {
+            if (patch.getVersion() != null && taskRepository.findVersionById(patch.getId()).isPresent()) {
+                return new ResourceConflictException("Task was modified by another request.");
+            }
+            return new ResourceNotFoundException("Task not found.");
+        });
+        Task task = result.task();
+        recordChanges(List.of(task.getId()), TaskChange.Type.UPDATED);
+        List<Long> ownerIds = List.of(result.ownerId());
+        // Поколение увеличивается раньше, чем удаляются записи кэша
+        taskListCache.touch(ownerIds);
+        cacheTagRegistry.invalidate(List.of(CacheTagRegistry.taskTag(task.getId())),
+                List.of(TASK_VERSION_CACHE), List.of(task.getId()));
+        userChangeCounter.tasksChanged(ownerIds);
+        return task;
+    }
+
     /**
      * Создает новую задачу. Вдобавок к этому, метод
      * добавляет новую задачу в кэш.
@@ -81,16 +297,67 @@ public class TaskServiceImpl implements TaskService {
      */
     @Override
     @Transactional
-    @Cacheable(value = "TaskService::getById", key = "#task.id")
+    @CachePut(value = "TaskService::getById", key = "#result.id")
     public Task create(Task task, Long userId) {
         task.setStatus(Status.TODO);
         // Создать задачу
         taskRepository.create(task);
         // Закрепить задачу за пользователем
         taskRepository.assignToUserById(task.getId(), userId);
+        recordChanges(List.of(task.getId()), TaskChange.Type.CREATED);
+        taskOwnershipIndex.add(userId, task.getId());
+        taskListCache.add(userId, task.getId());
+        // Список задач пользователя изменился
+        cacheTagRegistry.invalidate(CacheTagRegistry.userTag(userId));
+        userChangeCounter.tasksChanged(List.of(userId));
         return task;
     }
 
+    /**
+     * Создает несколько задач одной транзакцией.
+     * Идентификаторы выделяются одним запросом, задачи вставляются
+     * многострочными INSERT (по 1000 строк), а не по одной.
+     * Индекс владельцев и список задач пользователя в кэше
+     * не дополняются по одной задаче, а загружаются заново при следующем обращении.
+     *
+     * @param tasks  задачи, которые необходимо создать
+     * @param userId идентификатор пользователя
+     * @return задачи, созданные в системе
+     */
+    @Override
+    @Transactional
+    public List<Task> createAll(List<Task> tasks, Long userId) {
+        tasks.forEach(task -> task.setStatus(Status.TODO));
+        taskBatchRepository.createAll(tasks, userId);
+        recordChanges(tasks.stream().map(Task::getId).toList(), TaskChange.Type.CREATED);
+        taskOwnershipIndex.evict(userId);
+        taskListCache.evict(userId);
+        // Список задач пользователя изменился
+        cacheTagRegistry.invalidate(CacheTagRegistry.userTag(userId));
+        userChangeCounter.tasksChanged(List.of(userId));
+        return tasks;
+    }
+
+    /**
+     * Изменяет статус нескольких задач одним запросом UPDATE.
+     * Записи кэша задач и зависящие от них записи удаляются
+     * одним pipeline-запросом после фиксации транзакции.
+     *
+     * @param ids    идентификаторы задач
+     * @param status новый статус
+     */
+    @Override
+    @Transactional
+    public void updateStatus(Collection<Long> ids, Status status) {
+        Set<Long> taskIds = Set.copyOf(ids);
+        taskRepository.updateStatus(taskIds, status.name());
+        recordChanges(taskIds, TaskChange.Type.UPDATED);
+        List<Long> ownerIds = taskRepository.findOwnerIdsByTaskIds(taskIds);
+        taskListCache.touch(ownerIds);
+        invalidateTasks(taskIds);
+        userChangeCounter.tasksChanged(ownerIds);
+    }
+
 
     /**
      * Удаляет задачу
@@ -102,7 +369,63 @@ public class TaskServiceImpl implements TaskService {
     @Transactional
     @CacheEvict(value = "TaskService::getById", key = "#id")
     public void delete(Long id) {
+        // Владелец нужен для обновления индекса
+        taskRepository.findOwnerIdByTaskId(id)
+                .ifPresent(userId -> {
+                    taskOwnershipIndex.remove(userId, id);
+                    taskListCache.remove(userId, id);
+                    userChangeCounter.tasksChanged(List.of(userId));
+                });
+        // Связь с владельцем удаляется вместе с задачей
+        recordChanges(List.of(id), TaskChange.Type.DELETED);
         taskRepository.delete(id);
+        // Загрузка, прочитавшая задачу до удаления, могла снова записать ее в кэш
+        cacheTagRegistry.invalidate(List.of(CacheTagRegistry.taskTag(id)),
+                List.of(TASK_CACHE, TASK_VERSION_CACHE), List.of(id));
+    }
+
+    /**
+     * Удаляет несколько задач одним запросом DELETE
+     *
+     * @param ids идентификаторы задач
+     */
+    @Override
+    @Transactional
+    public void deleteAll(Collection<Long> ids) {
+        Set<Long> taskIds = Set.copyOf(ids);
+        // Владельцы нужны для обновления индекса и списков задач
+        List<Long> userIds = taskRepository.findOwnerIdsByTaskIds(taskIds);
+        for (Long userId : userIds) {
+            taskOwnershipIndex.removeAll(userId, taskIds);
+            taskListCache.removeAll(userId, taskIds);
+        }
+        userChangeCounter.tasksChanged(userIds);
+        recordChanges(taskIds, TaskChange.Type.DELETED);
+        taskRepository.deleteAllByIds(taskIds);
+        invalidateTasks(taskIds);
+    }
+
+    /**
+     * Записывает изменения задач в журнал. Подписчики получают их
+     * от ретранслятора ({@link TaskChangeRelay}) после фиксации транзакции.
+     *
+     * @param taskIds идентификаторы задач
+     * @param type    тип изменения
+     */
+    private void recordChanges(Collection<Long> taskIds, TaskChange.Type type) {
+        taskChangeRepository.record(taskIds, type);
+    }
+
+    /**
+     * Удаляет задачи из кэша вместе с зависящими от них записями
+     *
+     * @param taskIds идентификаторы задач
+     */
+    private void invalidateTasks(Collection<Long> taskIds) {
+        cacheTagRegistry.invalidate(taskIds.stream()
+                        .map(CacheTagRegistry::taskTag)
+                        .toList(),
+                List.of(TASK_CACHE, TASK_VERSION_CACHE), taskIds);
     }
 
 }
@@ -0,0 +1,136 @@
+package com.mag.taskList.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Счетчики изменений пользователей в Redis (общие для всех узлов).
+ * Счетчик профиля увеличивается при изменении пользователя,
+ * счетчик задач - при изменении любой задачи пользователя.
+ * Значения счетчиков используются как ETag, поэтому ответ 304
+ * формируется без загрузки пользователя или задач.
+ * Отсутствующий счетчик (новый пользователь или удаленный из Redis ключ)
+ * создается со значением текущего времени, а не с нуля, чтобы не повторить
+ * ETag, который уже был выдан клиентам. Создание и увеличение выполняются
+ * Lua-скриптами, то есть атомарно.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserChangeCounter {
+
+    private static final String USER_KEY = "version:user:";
+    private static final String TASKS_KEY = "version:user-tasks:";
+
+    /**
+     * Возвращает значение счетчика, создавая его при отсутствии.
+     * ARGV[1] - текущее время
+     */
+    private static final RedisScript<Long> GET = new DefaultRedisScript<>("""
+            local value = redis.call('GET', KEYS[1])
+            if not value then
+                redis.call('SET', KEYS[1], ARGV[1])
+                return tonumber(ARGV[1])
+            end
+            return tonumber(value)
+            """, Long.class);
+
+    /**
+     * Увеличивает счетчики. Отсутствующий счетчик сначала
+     * создается со значением ARGV[1] (текущее время)
+     */
+    private static final RedisScript<Long> INCREMENT = new DefaultRedisScript<>("""
+            for _, key in ipairs(KEYS) do
+                redis.call('SET', key, ARGV[1], 'NX')
+                redis.call('INCR', key)
+            end
+            return #KEYS
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * Текущая версия профиля пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @return версия
+     */
+    public long getUserVersion(Long userId) {
+        return get(USER_KEY + userId);
+    }
+
+    /**
+     * Текущая версия списка задач пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @return версия
+     */
+    public long getTasksVersion(Long userId) {
+        return get(TASKS_KEY + userId);
+    }
+
+    /**
+     * Отмечает изменение профиля пользователя
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void userChanged(Long userId) {
+        increment(List.of(USER_KEY + userId));
+    }
+
+    /**
+     * Отмечает изменение задач пользователей
+     *
+     * @param userIds идентификаторы пользователей
+     */
+    public void tasksChanged(Collection<Long> userIds) {
+        increment(userIds.stream()
+                .map(userId -> TASKS_KEY + userId)
+                .toList());
+    }
+
+    private long get(String key) {
+        Long value = redisTemplate.execute(GET, List.of(key), now());
+        if (value == null) {
+            throw new IllegalStateException("Change counter is not available: " + key);
+        }
+        return value;
+    }
+
+    /**
+     * Увеличивает счетчики одним скриптом.
+     * Если выполняется транзакция, счетчики увеличиваются после ее фиксации,
+     * иначе параллельный запрос получит новый ETag вместе со старыми данными.
+     */
+    private void increment(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incrementNow(keys);
+                }
+            });
+        } else {
+            incrementNow(keys);
+        }
+    }
+
+    private void incrementNow(Collection<String> keys) {
+        redisTemplate.execute(INCREMENT, List.copyOf(keys), now());
+    }
+
+    private static String now() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+}
@@ -1,8 +1,11 @@
 package com.mag.taskList.service.impl;
 
+import com.mag.taskList.config.cache.CacheTagRegistry;
 import com.mag.taskList.domain.exception.ResourceNotFoundException;
 import com.mag.taskList.domain.user.Role;
 import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+import com.mag.taskList.repository.UserQueryRepository;
 import com.mag.taskList.repository.UserRepository;
 import com.mag.taskList.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +17,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 @Service
@@ -21,45 +27,93 @@ import java.util.Set;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    /**
+     * Загрузка пользователя вместе с ролями (одним запросом)
+     */
+    private final UserQueryRepository userQueryRepository;
     /**
      * Пароль будем хэшировать
      */
     private final PasswordEncoder passwordEncoder;
+    /**
+     * Индекс владельцев задач (в памяти приложения)
+     */
+    private final TaskOwnershipIndex taskOwnershipIndex;
+    /**
+     * Удаляет все записи кэша, связанные с пользователем
+     */
+    private final CacheTagRegistry cacheTagRegistry;
+    /**
+     * Списки задач пользователей (Redis)
+     */
+    private final TaskListCache taskListCache;
+    /**
+     * Версии пользователей и их списков задач (ETag)
+     */
+    private final UserChangeCounter userChangeCounter;
 
     /**
      * Поиск пользователя
      * по идентификатору. Если пользователь не найден,
-     * отображается исключение {@link ResourceNotFoundException}
+     * отображается исключение {@link ResourceNotFoundException}.
+     * Задачи пользователя не загружаются (см. {@link TaskServiceImpl}).
+     * Как и остальные загрузки в кэш, выполняется в основной БД.
      *
      * @param id идентификатор пользователя
      * @return пользователь (объект класса User)
      */
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "UserService::getById", key = "#id")
+    @Cacheable(value = "UserService::getById", key = "#id", sync = true)
     public User getById(Long id) {
-        return userRepository.findById(id)
+        return userQueryRepository.findById(id, UserQueryRepository.Fetch.ROLES)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found."));
     }
 
     /**
      * Получает пользователя по username (электронная почта).
      * Если пользователь не найден, отображается исключение
-     * {@link ResourceNotFoundException}
+     * {@link ResourceNotFoundException}.
+     * Задачи пользователя не загружаются.
      *
      * @param username никнейм пользователя
      * @return пользователь
      */
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "UserService::getByUsername", key = "#username")
+    @Cacheable(value = "UserService::getByUsername", key = "#username", sync = true)
     public User getByUsername(String username) {
 
-        return userRepository.findByUsername(username)
+        return userQueryRepository.findByUsername(username, UserQueryRepository.Fetch.ROLES)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found."));
 
     }
 
+    /**
+     * Получает данные для аутентификации по username.
+     * Запись кэшируется отдельно от пользователя, поэтому
+     * вход и проверка токенов читают только id, username, пароль и роли.
+     *
+     * @param username никнейм пользователя
+     * @return данные для аутентификации
+     */
+    @Override
+    @Cacheable(value = "UserService::getCredentialsByUsername", key = "#username", sync = true)
+    public UserCredentials getCredentialsByUsername(String username) {
+        return userQueryRepository.findCredentialsByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found."));
+    }
+
+    /**
+     * Получает версию пользователя (ETag).
+     * Версия увеличивается при изменении или удалении пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @return версия
+     */
+    @Override
+    public long getVersionById(Long id) {
+        return userChangeCounter.getUserVersion(id);
+    }
+
     /**
      * Обновляет информацию о пользователе. Этот метод заменяет старую информацию
      * о пользователе на новую (в кэше), поэтому используется put.
@@ -79,6 +133,9 @@ public class UserServiceImpl implements UserService {
         // Хэшируем "сырой" пароль
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         userRepository.update(user);
+        // Запись по старому username также должна быть удалена
+        cacheTagRegistry.invalidate(CacheTagRegistry.userTag(user.getId()));
+        userChangeCounter.userChanged(user.getId());
         return user;
     }
 
@@ -98,7 +155,7 @@ public class UserServiceImpl implements UserService {
     public User create(User user) {
 
         // Проверяем существует ли такой пользователь в системе
-        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
+        if (userQueryRepository.findByUsername(user.getUsername(), UserQueryRepository.Fetch.ROLES).isPresent()) {
             throw new IllegalStateException("User already exists.");
         }
 
@@ -122,7 +179,29 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Проверяет, что пользователь является владельцем задачи
+     * Сохраняет новый хеш пароля. Используется при обновлении
+     * хеша до текущей стоимости BCrypt после успешного входа.
+     * Записи о пользователе удаляются из кэша.
+     *
+     * @param id              идентификатор пользователя
+     * @param username        логин пользователя
+     * @param encodedPassword хеш пароля
+     */
+    @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "UserService::getById", key = "#id"),
+            @CacheEvict(value = "UserService::getByUsername", key = "#username"),
+            @CacheEvict(value = "UserService::getCredentialsByUsername", key = "#username")
+    })
+    public void updatePassword(Long id, String username, String encodedPassword) {
+        userRepository.updatePassword(id, encodedPassword);
+    }
+
+    /**
+     * Проверяет, что пользователь является владельцем задачи.
+     * Проверка выполняется по индексу в памяти приложения
+     * (см. {@link TaskOwnershipIndex}), поэтому Redis не используется.
      *
      * @param userId идентификатор пользователя
      * @param taskId идентификатор задачи
@@ -130,16 +209,31 @@ public class UserServiceImpl implements UserService {
      * false - задача не принадлежит пользователю
      */
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "UserService::isTaskOwner", key = "#userId + '.' + #taskId")
     public boolean isTaskOwner(Long userId, Long taskId) {
-        return userRepository.isTaskOwner(userId, taskId);
+        return taskOwnershipIndex.isOwner(userId, taskId);
+    }
+
+    /**
+     * Проверяет, что пользователь является владельцем всех задач.
+     * Для задач, отсутствующих в индексе, выполняется один запрос к БД.
+     *
+     * @param userId  идентификатор пользователя
+     * @param taskIds идентификаторы задач
+     * @return true - все задачи принадлежат пользователю
+     */
+    @Override
+    public boolean isTasksOwner(Long userId, Collection<Long> taskIds) {
+        // Проверка доступа может выполняться до валидации параметров метода
+        if (taskIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalStateException("Ids must be not null.");
+        }
+        return taskOwnershipIndex.isOwnerOfAll(userId, Set.copyOf(taskIds));
     }
 
     /**
      * Удаляет пользователя по его идентификатору.
      * Помимо этого, метод удаляет данные из кэша, используя
-     * {@link CacheEvict}
+     * {@link CacheEvict} и теги пользователя (записи по username)
      *
      * @param id идентификатор пользователя
      */
@@ -148,6 +242,12 @@ public class UserServiceImpl implements UserService {
     @CacheEvict(value = "UserService::getById", key = "#id")
     public void delete(Long id) {
         userRepository.delete(id);
+        taskOwnershipIndex.evict(id);
+        taskListCache.evict(id);
+        cacheTagRegistry.invalidate(CacheTagRegistry.userTag(id));
+        // ETag удаленного пользователя не должен совпасть с ETag клиента
+        userChangeCounter.userChanged(id);
+        userChangeCounter.tasksChanged(List.of(id));
     }
 
 }
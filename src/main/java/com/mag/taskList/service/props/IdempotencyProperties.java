@@ -0,0 +1,34 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Свойства повторных запросов с заголовком Idempotency-Key.
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Время хранения ответа. Повтор запроса в течение этого
+     * времени возвращает сохраненный ответ.
+     */
+    private Duration ttl = Duration.ofHours(24);
+    /**
+     * Время жизни отметки "запрос выполняется" (если узел
+     * остановился, не сохранив ответ). Пока запрос выполняется,
+     * отметка продлевается каждую треть этого времени.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(30);
+    /**
+     * Сколько повторный запрос ждет завершения первого
+     */
+    private Duration waitTimeout = Duration.ofSeconds(10);
+
+}
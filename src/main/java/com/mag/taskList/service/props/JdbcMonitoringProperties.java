@@ -0,0 +1,32 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Свойства сбора статистики SQL-запросов.
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "jdbc.monitoring")
+public class JdbcMonitoringProperties {
+
+    /**
+     * Запросы, выполняющиеся дольше, попадают в журнал медленных запросов
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+    /**
+     * Количество последних медленных запросов, которые хранятся в памяти
+     */
+    private int slowQueryLogSize = 100;
+    /**
+     * Максимальное количество различных запросов в статистике.
+     * Остальные запросы учитываются в общей записи "other".
+     */
+    private int maxStatements = 500;
+
+}
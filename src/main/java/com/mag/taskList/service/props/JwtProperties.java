@@ -26,5 +26,16 @@ public class JwtProperties {
      * Срок жизни refresh_token
      */
     private long refresh;
+    /**
+     * Создавать пользователя (principal) напрямую из claims токена,
+     * без обращения к Redis и БД на каждый запрос
+     */
+    private boolean stateless;
+    /**
+     * Интервал (в минутах), по истечении которого пользователь
+     * повторно проверяется в БД в режиме stateless.
+     * Удаленный пользователь теряет доступ не позднее этого интервала.
+     */
+    private long revalidation = 5;
 
 }
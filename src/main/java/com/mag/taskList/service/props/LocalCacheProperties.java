@@ -0,0 +1,66 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Свойства кэша первого уровня (в памяти приложения)
+ * и кэша второго уровня (Redis).
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "cache")
+public class LocalCacheProperties {
+
+    /**
+     * Максимальное количество записей в локальном кэше (по умолчанию)
+     */
+    private long maximumSize = 10_000;
+    /**
+     * Максимальное количество записей для отдельных кэшей.
+     * Ключ - имя кэша, например UserService::getById
+     */
+    private Map<String, Long> maximumSizes = new HashMap<>();
+    /**
+     * Время жизни записи в локальном кэше
+     */
+    private Duration localTtl = Duration.ofMinutes(5);
+    /**
+     * Время жизни записи в Redis
+     */
+    private Duration redisTtl = Duration.ofHours(6);
+    /**
+     * Размер записи Redis (в байтах), начиная с которого она сжимается
+     */
+    private int compressionThreshold = 512;
+    /**
+     * Коэффициент вероятностного раннего обновления записей.
+     * 0 - раннее обновление отключено, больше 1 - записи обновляются раньше.
+     */
+    private double earlyRefreshBeta = 1.0;
+    /**
+     * Ограничивать загрузку записи одним узлом (аренда в Redis)
+     */
+    private boolean leaseEnabled;
+    /**
+     * Время аренды загрузки записи
+     */
+    private Duration leaseTime = Duration.ofSeconds(3);
+
+    /**
+     * Получает максимальный размер локального кэша
+     *
+     * @param cacheName имя кэша
+     * @return количество записей
+     */
+    public long maximumSize(String cacheName) {
+        return maximumSizes.getOrDefault(cacheName, maximumSize);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Свойства журнала изменений задач (outbox) и его ретранслятора.
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "outbox")
+public class OutboxProperties {
+
+    /**
+     * Пауза между проверками новых изменений
+     */
+    private Duration relayInterval = Duration.ofSeconds(1);
+    /**
+     * Количество изменений, публикуемых одним сообщением
+     */
+    private int batchSize = 500;
+    /**
+     * Время хранения опубликованных изменений
+     */
+    private Duration retention = Duration.ofDays(7);
+    /**
+     * Пауза между удалениями устаревших изменений
+     */
+    private Duration cleanupInterval = Duration.ofHours(1);
+
+}
@@ -0,0 +1,35 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Свойства хеширования паролей.
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "security.password")
+public class PasswordProperties {
+
+    /**
+     * Стоимость (strength) BCrypt для новых хешей.
+     * Хеши с меньшей стоимостью обновляются при успешном входе.
+     */
+    private int strength = 10;
+    /**
+     * Количество потоков, проверяющих пароли
+     */
+    private int threads = 4;
+    /**
+     * Максимальное количество запросов на вход в очереди.
+     * Если очередь заполнена, клиент сразу получает 503.
+     */
+    private int queue = 64;
+    /**
+     * Максимальное время ожидания проверки пароля (в секундах)
+     */
+    private long timeout = 5;
+
+}
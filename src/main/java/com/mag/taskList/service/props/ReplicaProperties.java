@@ -0,0 +1,59 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Свойства реплик БД, на которые направляются
+ * транзакции только для чтения (readOnly = true).
+ * Если список реплик пуст, используется только основная БД.
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "datasource.replicas")
+public class ReplicaProperties {
+
+    /**
+     * JDBC URL реплик
+     */
+    private List<String> urls = new ArrayList<>();
+    /**
+     * Имя пользователя и пароль (если не заданы - как у основной БД)
+     */
+    private String username;
+    private String password;
+    /**
+     * Максимальный размер пула соединений каждой реплики
+     */
+    private int poolSize = 10;
+    /**
+     * Максимальное отставание реплики. Реплики с большим
+     * отставанием не используются, пока не догонят основную БД.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+    /**
+     * Максимальное время без сообщений от основной БД. Реплика,
+     * которая не получает WAL (status в pg_stat_wal_receiver не streaming
+     * или сообщений не было дольше этого времени), не используется.
+     * Пользователю реплик нужна роль pg_monitor, иначе состояние
+     * получателя WAL не видно и реплика считается недоступной.
+     */
+    private Duration receiverTimeout = Duration.ofMinutes(1);
+    /**
+     * Интервал проверки доступности и отставания реплик
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    /**
+     * Время после изменения данных, в течение которого чтение
+     * пользователя выполняется из основной БД (read-your-writes).
+     * Отметка хранится в Redis и действует на всех узлах.
+     */
+    private Duration readYourWrites = Duration.ofSeconds(5);
+
+}
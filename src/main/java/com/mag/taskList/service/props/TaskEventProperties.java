@@ -0,0 +1,49 @@
+package com.mag.taskList.service.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Свойства отправки изменений задач клиентам (Server-Sent Events).
+ * Свойства находятся в application.yaml
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "task-events")
+public class TaskEventProperties {
+
+    /**
+     * Время жизни соединения. Затем клиент (EventSource) подключается заново.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+    /**
+     * Пауза между пустыми сообщениями, которые не дают
+     * прокси закрыть неактивное соединение
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+    /**
+     * Количество потоков, отправляющих изменения подписчикам.
+     * Один поток отправляет изменения одному подписчику, поэтому
+     * подписчик с медленным соединением занимает не больше одного потока
+     */
+    private int deliveryThreads = 8;
+    /**
+     * Размер очереди изменений подписчика. Если очередь переполнена,
+     * подписка отменяется, и клиент переподключается с последним номером
+     */
+    private int queueCapacity = 256;
+    /**
+     * Размер страницы ленты при отправке пропущенных изменений
+     */
+    private int replayPageSize = 500;
+    /**
+     * Максимальное количество пропущенных изменений, которые отправляются
+     * после переподключения. При большем количестве клиент получает
+     * событие reset и заново загружает список задач
+     */
+    private int replayLimit = 5000;
+
+}
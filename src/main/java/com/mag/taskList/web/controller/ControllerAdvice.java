@@ -2,8 +2,10 @@ package com.mag.taskList.web.controller;
 
 import com.mag.taskList.domain.exception.AccessDeniedException;
 import com.mag.taskList.domain.exception.ExceptionBody;
+import com.mag.taskList.domain.exception.ResourceConflictException;
 import com.mag.taskList.domain.exception.ResourceMappingException;
 import com.mag.taskList.domain.exception.ResourceNotFoundException;
+import com.mag.taskList.domain.exception.ServiceUnavailableException;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.AuthenticationException;
@@ -28,6 +30,17 @@ public class ControllerAdvice {
         return new ExceptionBody(e.getMessage());
     }
 
+    /**
+     * Ресурс был изменен другим запросом
+     * @param e сообщение, которое необходимо отобразить
+     * @return объект класса {@link ExceptionBody}
+     */
+    @ExceptionHandler(ResourceConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ExceptionBody handleResourceConflict(ResourceConflictException e) {
+        return new ExceptionBody(e.getMessage());
+    }
+
     /**
      * Ошибка, происходящая на стороне сервера
      * @param e сообщение, которое необходимо отобразить
@@ -50,6 +63,17 @@ public class ControllerAdvice {
         return new ExceptionBody(e.getMessage());
     }
 
+    /**
+     * Сервер перегружен (например, запросами на вход)
+     * @param e сообщение, которое необходимо отобразить
+     * @return объект класса {@link ExceptionBody}
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ExceptionBody handleServiceUnavailable(ServiceUnavailableException e) {
+        return new ExceptionBody(e.getMessage());
+    }
+
     @ExceptionHandler({AccessDeniedException.class, org.springframework.security.access.AccessDeniedException.class})
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ExceptionBody handleAccessDenied() {
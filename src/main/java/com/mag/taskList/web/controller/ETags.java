@@ -0,0 +1,44 @@
+package com.mag.taskList.web.controller;
+
+/**
+ * Преобразование версии ресурса в ETag и обратно.
+ * ETag - версия в кавычках ("3").
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Создает строгий ETag
+     *
+     * @param version версия ресурса
+     * @return ETag
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Получает версию из заголовка If-Match.
+     * Значение * означает любую версию.
+     *
+     * @param ifMatch значение заголовка
+     * @return версия или null для *
+     */
+    static Long parseVersion(String ifMatch) {
+        String value = ifMatch.trim();
+        if ("*".equals(value)) {
+            return null;
+        }
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            throw new IllegalStateException("If-Match must contain a single strong ETag.");
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("If-Match must contain a single strong ETag.");
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.mag.taskList.web.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mag.taskList.domain.exception.ResourceConflictException;
+import com.mag.taskList.domain.exception.ResourceMappingException;
+import com.mag.taskList.domain.exception.ServiceUnavailableException;
+import com.mag.taskList.service.props.IdempotencyProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Выполнение запросов с заголовком Idempotency-Key.
+ * Первый запрос оставляет в Redis отметку "выполняется" (SET NX),
+ * затем сохраняет ответ (JSON) на время idempotency.ttl.
+ * Повторный запрос с тем же ключом ждет завершения первого
+ * и возвращает сохраненный ответ, не вызывая сервис.
+ * Ключ нельзя использовать с другим телом запроса.
+ * Пока действие выполняется, срок жизни отметки периодически
+ * продлевается, поэтому долгое действие не выполнится повторно.
+ */
+@Component
+@RequiredArgsConstructor
+class IdempotentRequests {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    /**
+     * Заголовок запроса
+     */
+    static final String HEADER = "Idempotency-Key";
+
+    private static final String KEY = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 255;
+    /**
+     * Состояния записи: "P|отпечаток|токен" - запрос выполняется,
+     * "D|отпечаток|ответ" - ответ сохранен
+     */
+    private static final String PENDING = "P|";
+    private static final String DONE = "D|";
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    /**
+     * Продлевает отметку "выполняется", если она принадлежит этому запросу
+     */
+    private static final RedisScript<Long> RENEW = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Удаляет отметку "выполняется", если она принадлежит этому запросу
+     */
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+
+    /**
+     * Поток, продлевающий отметки выполняющихся запросов
+     */
+    private ScheduledExecutorService renewer;
+
+    @PostConstruct
+    public void start() {
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        renewer.shutdownNow();
+    }
+
+    /**
+     * Выполняет действие один раз для ключа.
+     * Если ключ не передан, действие выполняется как обычно.
+     *
+     * @param scope        область ключа (например, пользователь и операция)
+     * @param key          значение заголовка Idempotency-Key (или null)
+     * @param request      тело запроса (для проверки повторов)
+     * @param responseType тип ответа
+     * @param action       действие
+     * @return ответ действия или сохраненный ответ
+     */
+    <T> T execute(String scope, String key, Object request, JavaType responseType, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalStateException(HEADER + " must contain 1-" + MAX_KEY_LENGTH + " characters.");
+        }
+        String redisKey = KEY + scope + ":" + key;
+        String fingerprint = fingerprint(request);
+        // Отметка содержит токен запроса, чтобы продлевать только свою отметку
+        String pending = PENDING + fingerprint + "|" + UUID.randomUUID();
+        long deadline = System.currentTimeMillis() + properties.getWaitTimeout().toMillis();
+
+        while (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(redisKey, pending, properties.getLockTimeout()))) {
+            String value = redisTemplate.opsForValue().get(redisKey);
+            if (value == null) {
+                // Первый запрос завершился ошибкой - пробуем выполнить снова после паузы,
+                // чтобы параллельные повторы не опрашивали Redis без остановки
+                sleep();
+                continue;
+            }
+            if (!value.startsWith(fingerprint, 2)) {
+                throw new IllegalStateException(HEADER + " was already used with a different request.");
+            }
+            if (value.startsWith(DONE)) {
+                return read(value.substring(DONE.length() + fingerprint.length() + 1), responseType);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new ResourceConflictException("A request with this " + HEADER + " is still in progress.");
+            }
+            sleep();
+        }
+
+        T result;
+        ScheduledFuture<?> renewal = scheduleRenewal(redisKey, pending);
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            // Ответ не сохраняется, повторный запрос выполнится заново.
+            // Удаляется только своя отметка: если она истекла, ключ мог занять другой запрос
+            try {
+                redisTemplate.execute(RELEASE, List.of(redisKey), pending);
+            } catch (RuntimeException releaseError) {
+                // Отметка истечет через lock-timeout
+                log.warn("Cannot release {}: {}", redisKey, releaseError.getMessage());
+            }
+            throw e;
+        } finally {
+            renewal.cancel(false);
+        }
+        redisTemplate.opsForValue().set(redisKey, DONE + fingerprint + "|" + write(result), properties.getTtl());
+        return result;
+    }
+
+    /**
+     * Продлевает отметку "выполняется" каждую треть lock-timeout
+     *
+     * @param redisKey ключ Redis
+     * @param pending  значение отметки
+     * @return задача продления (отменяется после завершения действия)
+     */
+    private ScheduledFuture<?> scheduleRenewal(String redisKey, String pending) {
+        long lockTimeout = properties.getLockTimeout().toMillis();
+        long interval = Math.max(1, lockTimeout / 3);
+        return renewer.scheduleAtFixedRate(() -> {
+            try {
+                redisTemplate.execute(RENEW, List.of(redisKey), pending, String.valueOf(lockTimeout));
+            } catch (RuntimeException e) {
+                // Следующая попытка выполнится через interval
+                log.warn("Cannot renew {}: {}", redisKey, e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(write(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new ResourceMappingException("Cannot serialize idempotent response.");
+        }
+    }
+
+    private <T> T read(String json, JavaType type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new ResourceMappingException("Cannot read idempotent response.");
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for idempotent request.");
+        }
+    }
+
+}
@@ -1,16 +1,29 @@
 package com.mag.taskList.web.controller;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskPatch;
 import com.mag.taskList.service.TaskService;
 import com.mag.taskList.web.dto.task.TaskDTO;
+import com.mag.taskList.web.dto.task.TaskStatusDTO;
 import com.mag.taskList.web.dto.validation.OnUpdate;
 import com.mag.taskList.web.mappers.TaskMapper;
+import com.mag.taskList.web.mappers.TaskPatchMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/tasks")
@@ -19,32 +32,88 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Task Controller", description = "Task API")
 public class TaskController {
 
+    /**
+     * Тип содержимого JSON Merge Patch
+     */
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final TaskService taskService;
 
     private final TaskMapper taskMapper;
 
+    private final TaskPatchMapper taskPatchMapper;
+
     /**
      * Обновляет данные.
      * Метод принимает JSON и проверяет поля, у которых
-     * установлены аннотации со значением OnUpdate.class
+     * установлены аннотации со значением OnUpdate.class.
+     * Ожидаемая версия задачи передается в заголовке If-Match
+     * (или в поле version). Если задачу изменил другой запрос,
+     * возвращается 409. Новая версия возвращается в заголовке ETag.
      *
-     * @param dto объект TaskDTO
+     * @param dto      объект TaskDTO
+     * @param ifMatch  ETag задачи, которую изменяет клиент
+     * @param response ответ (заголовок ETag)
      * @return TaskDTO
      */
     @PutMapping
     @Operation(summary = "Update task")
     @PreAuthorize("canAccessTask(#dto.id)")
-    public TaskDTO update(@Validated(OnUpdate.class) @RequestBody TaskDTO dto) {
+    public TaskDTO update(@Validated(OnUpdate.class) @RequestBody TaskDTO dto,
+                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                          HttpServletResponse response) {
         Task task = taskMapper.toEntity(dto);
+        if (ifMatch != null) {
+            task.setVersion(ETags.parseVersion(ifMatch));
+        }
         // Обновление задачи на сервере
         Task updatedTask = taskService.update(task);
+        response.setHeader(HttpHeaders.ETAG, ETags.of(updatedTask.getVersion()));
         return taskMapper.toDto(updatedTask);
     }
 
+    /**
+     * Изменяет только переданные поля задачи (JSON Merge Patch, RFC 7396).
+     * Например, для изменения статуса достаточно передать {"status": "DONE"}.
+     * Ожидаемая версия задачи передается в заголовке If-Match.
+     *
+     * @param id       идентификатор задачи
+     * @param document изменения задачи
+     * @param ifMatch  ETag задачи, которую изменяет клиент
+     * @param response ответ (заголовок ETag)
+     * @return TaskDTO
+     */
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Partially update task")
+    @PreAuthorize("canAccessTask(#id)")
+    public TaskDTO patch(@PathVariable Long id,
+                         @RequestBody ObjectNode document,
+                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                         HttpServletResponse response) {
+        TaskPatch patch = taskPatchMapper.toPatch(id, document);
+        if (ifMatch != null) {
+            patch.setVersion(ETags.parseVersion(ifMatch));
+        }
+        Task task = taskService.patch(patch);
+        response.setHeader(HttpHeaders.ETAG, ETags.of(task.getVersion()));
+        return taskMapper.toDto(task);
+    }
+
+    /**
+     * Получает задачу. ETag - версия задачи. Если версия совпадает
+     * с If-None-Match, возвращается 304 без загрузки задачи.
+     *
+     * @param id      идентификатор задачи
+     * @param request запрос (If-None-Match)
+     * @return TaskDTO
+     */
     @GetMapping("/{id}")
     @Operation(summary = "Get TaskDTO by id")
     @PreAuthorize("canAccessTask(#id)")
-    public TaskDTO getById(@PathVariable Long id) {
+    public TaskDTO getById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(taskService.getVersionById(id)))) {
+            return null;
+        }
         Task task = taskService.getById(id);
         return taskMapper.toDto(task);
     }
@@ -56,5 +125,33 @@ public class TaskController {
         taskService.delete(id);
     }
 
+    /**
+     * Изменяет статус нескольких задач.
+     * Доступ проверяется сразу для всего списка задач.
+     *
+     * @param dto идентификаторы задач и новый статус
+     */
+    @PatchMapping("/status")
+    @Operation(summary = "Change status of several tasks")
+    @PreAuthorize("canAccessTasks(#dto.ids)")
+    public void updateStatus(@Validated @RequestBody TaskStatusDTO dto) {
+        taskService.updateStatus(dto.getIds(), dto.getStatus());
+    }
+
+    /**
+     * Удаляет несколько задач
+     *
+     * @param ids идентификаторы задач (ids=1,2,3)
+     */
+    @DeleteMapping
+    @Operation(summary = "Delete several tasks")
+    @PreAuthorize("canAccessTasks(#ids)")
+    public void deleteByIds(@RequestParam
+                            @NotEmpty(message = "Ids must be not empty.")
+                            @Size(max = 1000, message = "No more than 1000 tasks can be deleted at once.")
+                            List<@NotNull(message = "Ids must be not null.") Long> ids) {
+        taskService.deleteAll(ids);
+    }
+
 
 }
@@ -1,23 +1,48 @@
 package com.mag.taskList.web.controller;
 
+import com.mag.taskList.domain.task.Status;
 import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskChange;
+import com.mag.taskList.domain.task.TaskFilter;
 import com.mag.taskList.domain.user.User;
+import com.mag.taskList.service.TaskChangeListener;
 import com.mag.taskList.service.TaskService;
 import com.mag.taskList.service.UserService;
+import com.mag.taskList.service.props.TaskEventProperties;
+import com.mag.taskList.web.dto.task.TaskChangeFeedDTO;
+import com.mag.taskList.web.dto.task.TaskCursor;
 import com.mag.taskList.web.dto.task.TaskDTO;
 import com.mag.taskList.web.dto.user.UserDTO;
 import com.mag.taskList.web.dto.validation.OnCreate;
 import com.mag.taskList.web.dto.validation.OnUpdate;
 import com.mag.taskList.web.mappers.TaskMapper;
 import com.mag.taskList.web.mappers.UserMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -26,12 +51,40 @@ import java.util.List;
 @Tag(name = "User Controller", description = "User API")
 public class UserController {
 
+    /**
+     * Заголовок, в котором возвращается позиция следующей страницы задач
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Максимальное количество задач в одном запросе на создание
+     */
+    private static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * Имена событий SSE по типу изменения задачи
+     */
+    private static final Map<TaskChange.Type, String> EVENT_NAMES = Map.of(
+            TaskChange.Type.CREATED, "create",
+            TaskChange.Type.UPDATED, "update",
+            TaskChange.Type.DELETED, "delete"
+    );
+
     private final UserService userService;
     private final TaskService taskService;
 
     private final UserMapper userMapper;
     private final TaskMapper taskMapper;
 
+    private final ObjectMapper objectMapper;
+
+    private final TaskEventProperties taskEventProperties;
+
+    /**
+     * Повторы запросов на создание задач (Idempotency-Key)
+     */
+    private final IdempotentRequests idempotentRequests;
+
     @PutMapping
     @Operation(summary = "Update user")
     @PreAuthorize("@customSecurityExpression.canAccessUser(#dto.id)")
@@ -42,10 +95,21 @@ public class UserController {
     }
 
 
+    /**
+     * Получает пользователя. ETag - счетчик изменений пользователя.
+     * Если он совпадает с If-None-Match, возвращается 304 без загрузки пользователя.
+     *
+     * @param id      идентификатор пользователя
+     * @param request запрос (If-None-Match)
+     * @return UserDTO
+     */
     @GetMapping("/{id}")
     @Operation(summary = "Get UserDTO by id")
     @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
-    public UserDTO getById(@PathVariable Long id) {
+    public UserDTO getById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(userService.getVersionById(id)))) {
+            return null;
+        }
         // Получить пользователя
         User user = userService.getById(id);
         // Возвратить соответствующее значение
@@ -60,38 +124,244 @@ public class UserController {
     }
 
     /**
-     * Получить список задач определенного пользователя
+     * Получить список задач определенного пользователя.
+     * Без параметров возвращаются все задачи. Если задан limit или фильтр,
+     * возвращается страница задач, а позиция следующей страницы передается
+     * в заголовке X-Next-Cursor.
+     * ETag - счетчик изменений задач пользователя. Если он совпадает
+     * с If-None-Match, возвращается 304 без загрузки задач.
      *
-     * @param id идентификатор пользователя
+     * @param id             идентификатор пользователя
+     * @param limit          максимальное количество задач на странице
+     * @param cursor         позиция страницы (из заголовка X-Next-Cursor)
+     * @param status         статус задачи
+     * @param expirationFrom срок выполнения - не раньше
+     * @param expirationTo   срок выполнения - не позже
+     * @param sort           порядок задач
+     * @param request        запрос (If-None-Match)
      * @return список задач
      */
     @GetMapping("/{id}/tasks")
     @Operation(summary = "Get all User tasks")
     @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
-    public List<TaskDTO> getTasksByUserId(@PathVariable Long id) {
-        // Получить список задач
-        List<Task> tasksList = taskService.getAllByUserId(id);
-        // Возвратить соответствующее значение
-        return taskMapper.toDto(tasksList);
+    public List<TaskDTO> getTasksByUserId(@PathVariable Long id,
+                                          @RequestParam(required = false) @Min(1) @Max(1000) Integer limit,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Status status,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                          LocalDateTime expirationFrom,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                          LocalDateTime expirationTo,
+                                          @RequestParam(required = false) TaskFilter.Sort sort,
+                                          WebRequest request,
+                                          HttpServletResponse response) {
+        if (request.checkNotModified(ETags.of(taskService.getListVersionByUserId(id)))) {
+            return null;
+        }
+        if (limit == null && cursor == null && status == null
+                && expirationFrom == null && expirationTo == null && sort == null) {
+            // Получить список задач
+            List<Task> tasksList = taskService.getAllByUserId(id);
+            // Возвратить соответствующее значение
+            return taskMapper.toDto(tasksList);
+        }
+
+        TaskFilter filter = new TaskFilter();
+        filter.setStatus(status);
+        filter.setExpirationFrom(expirationFrom);
+        filter.setExpirationTo(expirationTo);
+        if (sort != null) {
+            filter.setSort(sort);
+        }
+        if (limit != null) {
+            filter.setLimit(limit);
+        }
+        if (cursor != null) {
+            TaskCursor.decode(cursor, filter);
+        }
+
+        List<Task> page = taskService.getPageByUserId(id, filter);
+        // Страница заполнена полностью - возможно, есть следующая
+        if (page.size() == filter.getLimit()) {
+            response.setHeader(NEXT_CURSOR_HEADER,
+                    TaskCursor.encode(page.get(page.size() - 1), filter.getSort()));
+        }
+        return taskMapper.toDto(page);
+    }
+
+    /**
+     * Получить изменения задач пользователя после позиции since.
+     * Без since возвращается только текущая позиция: клиент загружает
+     * список задач, а затем запрашивает изменения после этой позиции.
+     * Если reset = true, клиент должен заново загрузить список задач.
+     *
+     * @param id    идентификатор пользователя
+     * @param since позиция (cursor из предыдущего ответа)
+     * @param limit максимальное количество изменений
+     * @return изменения задач
+     */
+    @GetMapping("/{id}/tasks/changes")
+    @Operation(summary = "Get changes of User tasks since cursor")
+    @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
+    public TaskChangeFeedDTO getTaskChangesByUserId(@PathVariable Long id,
+                                                    @RequestParam(required = false) @Min(0) Long since,
+                                                    @RequestParam(defaultValue = "500") @Min(1) @Max(1000) int limit) {
+        return taskMapper.toDto(taskService.getChangesByUserId(id, since, limit));
+    }
+
+    /**
+     * Подписаться на изменения задач пользователя (Server-Sent Events).
+     * Событие create, update или delete содержит TaskChangeDTO,
+     * идентификатор события - номер изменения в ленте. При переподключении
+     * EventSource передает последний номер в заголовке Last-Event-ID,
+     * и пропущенные изменения отправляются из ленты. Если их нельзя
+     * отправить, приходит событие reset: клиент должен заново загрузить
+     * список задач.
+     * Соединение не занимает поток сервера, пока нет изменений.
+     *
+     * @param id          идентификатор пользователя
+     * @param lastEventId номер последнего полученного изменения
+     * @return поток событий
+     */
+    @GetMapping(value = "/{id}/tasks/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to User task changes (Server-Sent Events)")
+    @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
+    public SseEmitter subscribeToTaskChanges(@PathVariable Long id,
+                                             @RequestHeader(value = "Last-Event-ID", required = false)
+                                             @Min(0) Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(taskEventProperties.getTimeout().toMillis());
+        Runnable unsubscribe = taskService.subscribeToChanges(id, lastEventId, new TaskChangeListener() {
+            @Override
+            public void onChange(TaskChange change) {
+                send(emitter, SseEmitter.event()
+                        .id(String.valueOf(change.getSeq()))
+                        .name(EVENT_NAMES.get(change.getType()))
+                        .data(taskMapper.toDto(change), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void onHeartbeat() {
+                send(emitter, SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void onReset(long cursor) {
+                send(emitter, SseEmitter.event()
+                        .id(String.valueOf(cursor))
+                        .name("reset")
+                        .data(cursor));
+            }
+
+            @Override
+            public void onDropped() {
+                // Клиент переподключится с последним номером
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился
+            emitter.completeWithError(e);
+        }
     }
 
     /**
-     * Метод, который позволяет закрепить задачу за определенным пользователем
+     * Получить все задачи пользователя в формате NDJSON (одна задача в строке).
+     * Задачи читаются из курсора БД и сразу записываются в ответ,
+     * поэтому расход памяти не зависит от количества задач.
+     *
+     * @param id идентификатор пользователя
+     * @return поток задач
+     */
+    @GetMapping(value = "/{id}/tasks", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all User tasks as NDJSON")
+    @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
+    public StreamingResponseBody streamTasksByUserId(@PathVariable Long id) {
+        ObjectWriter writer = objectMapper.writerFor(TaskDTO.class);
+        return outputStream -> {
+            // Отправить заголовки ответа до начала выборки
+            outputStream.flush();
+            OutputStream out = new BufferedOutputStream(outputStream);
+            try {
+                taskService.streamAllByUserId(id, task -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(taskMapper.toDto(task)));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+    }
+
+    /**
+     * Метод, который позволяет закрепить задачу за определенным пользователем.
+     * Если передан заголовок Idempotency-Key, повтор запроса с тем же ключом
+     * возвращает первый ответ и не создает задачу заново.
      * @param id идентификатор пользователя
      * @param dto объект TaskDTO, который мы получаем от пользователя
+     * @param idempotencyKey ключ повторов запроса
      * @return TaskDTO
      */
     @PostMapping("/{id}/tasks")
     @Operation(summary = "Add task to user")
     @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
     public TaskDTO createTask(@PathVariable Long id,
-                              @Validated(OnCreate.class) @RequestBody TaskDTO dto) {
+                              @Validated(OnCreate.class) @RequestBody TaskDTO dto,
+                              @RequestHeader(value = IdempotentRequests.HEADER, required = false)
+                              String idempotencyKey) {
+        return idempotentRequests.execute("user:" + id + ":tasks", idempotencyKey, dto,
+                objectMapper.constructType(TaskDTO.class), () -> {
+                    // Преобразовать DTO в сущность (Entity)
+                    Task task = taskMapper.toEntity(dto);
+                    // Присвоить задачу пользователю
+                    Task createdTask = taskService.create(task, id);
+                    return taskMapper.toDto(createdTask);
+                });
+    }
 
-        // Преобразовать DTO в сущность (Entity)
-        Task task = taskMapper.toEntity(dto);
-        // Присвоить задачу пользователю
-        Task createdTask = taskService.create(task, id);
-        return taskMapper.toDto(createdTask);
+    /**
+     * Создать несколько задач пользователя одним запросом.
+     * Группа валидации OnCreate задается для метода,
+     * поэтому она применяется к каждому элементу списка.
+     *
+     * @param id   идентификатор пользователя
+     * @param dtos задачи
+     * @param idempotencyKey ключ повторов запроса (см. createTask)
+     * @return созданные задачи
+     */
+    @PostMapping("/{id}/tasks/batch")
+    @Operation(summary = "Add tasks to user in batch")
+    @PreAuthorize("@customSecurityExpression.canAccessUser(#id)")
+    @Validated(OnCreate.class)
+    public List<TaskDTO> createTasks(@PathVariable Long id,
+                                     @RequestBody
+                                     @Size(min = 1, max = MAX_BATCH_SIZE, groups = OnCreate.class)
+                                     List<@Valid TaskDTO> dtos,
+                                     @RequestHeader(value = IdempotentRequests.HEADER, required = false)
+                                     String idempotencyKey) {
+        return idempotentRequests.execute("user:" + id + ":tasks-batch", idempotencyKey, dtos,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, TaskDTO.class), () -> {
+                    List<Task> tasks = dtos.stream()
+                            .map(taskMapper::toEntity)
+                            .toList();
+                    List<Task> createdTasks = taskService.createAll(tasks, id);
+                    return taskMapper.toDto(createdTasks);
+                });
     }
 
 }
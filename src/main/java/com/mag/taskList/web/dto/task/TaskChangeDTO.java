@@ -0,0 +1,26 @@
+package com.mag.taskList.web.dto.task;
+
+import com.mag.taskList.domain.task.TaskChange;
+import lombok.Data;
+
+/**
+ * Изменение задачи
+ */
+@Data
+public class TaskChangeDTO {
+
+    /**
+     * Идентификатор задачи
+     */
+    private Long taskId;
+
+    /**
+     * Тип изменения
+     */
+    private TaskChange.Type type;
+
+    /**
+     * Текущее состояние задачи (null для удаленной задачи)
+     */
+    private TaskDTO task;
+}
@@ -0,0 +1,27 @@
+package com.mag.taskList.web.dto.task;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Изменения задач пользователя после позиции клиента
+ */
+@Data
+public class TaskChangeFeedDTO {
+
+    /**
+     * Изменения (для каждой задачи - последнее)
+     */
+    private List<TaskChangeDTO> changes;
+
+    /**
+     * Позиция для следующего запроса (параметр since)
+     */
+    private Long cursor;
+
+    /**
+     * Клиент должен заново загрузить список задач
+     */
+    private boolean reset;
+}
@@ -0,0 +1,64 @@
+package com.mag.taskList.web.dto.task;
+
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция страницы задач (cursor), которую клиент передает
+ * для получения следующей страницы.
+ * Формат (до кодирования Base64): "id" или "id:срок выполнения"
+ * (при сортировке по сроку выполнения, "-" - срок не задан).
+ */
+public final class TaskCursor {
+
+    private TaskCursor() {
+    }
+
+    /**
+     * Создает cursor по последней задаче страницы
+     *
+     * @param last последняя задача страницы
+     * @param sort сортировка
+     * @return cursor
+     */
+    public static String encode(Task last, TaskFilter.Sort sort) {
+        String value = String.valueOf(last.getId());
+        if (sort == TaskFilter.Sort.EXPIRATION_DATE) {
+            String date = last.getExpirationDate() == null
+                    ? "-"
+                    : last.getExpirationDate().toString();
+            value = value + ":" + date;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Записывает позицию страницы в фильтр
+     *
+     * @param cursor cursor, полученный от клиента
+     * @param filter фильтр (сортировка уже должна быть задана)
+     */
+    public static void decode(String cursor, TaskFilter filter) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (filter.getSort() == TaskFilter.Sort.EXPIRATION_DATE) {
+                int separator = value.indexOf(':');
+                String date = value.substring(separator + 1);
+                if (!"-".equals(date)) {
+                    filter.setAfterExpirationDate(LocalDateTime.parse(date));
+                }
+                value = value.substring(0, separator);
+            }
+            filter.setAfterId(Long.valueOf(value));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalStateException("Invalid cursor.");
+        }
+    }
+
+}
@@ -47,4 +47,10 @@ public class TaskDTO {
     @DateTimeFormat(iso = DateTimeFormat.ISO.TIME)
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
     private LocalDateTime expirationDate;
+
+    /**
+     * Версия задачи. Если версия указана при обновлении,
+     * задача обновляется, только если ее не изменили другие запросы
+     */
+    private Long version;
 }
@@ -0,0 +1,29 @@
+package com.mag.taskList.web.dto.task;
+
+import com.mag.taskList.domain.task.Status;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Изменение статуса нескольких задач
+ */
+@Data
+public class TaskStatusDTO {
+
+    /**
+     * Идентификаторы задач
+     */
+    @NotEmpty(message = "Ids must be not empty.")
+    @Size(max = 1000, message = "No more than 1000 tasks can be changed at once.")
+    private List<@NotNull(message = "Ids must be not null.") Long> ids;
+
+    /**
+     * Новый статус задач
+     */
+    @NotNull(message = "Status must be not null.")
+    private Status status;
+}
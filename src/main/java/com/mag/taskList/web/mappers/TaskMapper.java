@@ -1,5 +1,9 @@
 package com.mag.taskList.web.mappers;
 
+import com.mag.taskList.domain.task.TaskChange;
+import com.mag.taskList.domain.task.TaskChangeFeed;
+import com.mag.taskList.web.dto.task.TaskChangeDTO;
+import com.mag.taskList.web.dto.task.TaskChangeFeedDTO;
 import com.mag.taskList.web.dto.task.TaskDTO;
 import com.mag.taskList.domain.task.Task;
 import org.mapstruct.Mapper;
@@ -29,4 +33,18 @@ public interface TaskMapper {
      * @return объект Task
      */
     Task toEntity(TaskDTO dto);
+
+    /**
+     * Переводит изменение задачи в DTO
+     * @param change изменение задачи
+     * @return объект TaskChangeDTO
+     */
+    TaskChangeDTO toDto(TaskChange change);
+
+    /**
+     * Переводит изменения задач пользователя в DTO
+     * @param feed изменения задач
+     * @return объект TaskChangeFeedDTO
+     */
+    TaskChangeFeedDTO toDto(TaskChangeFeed feed);
 }
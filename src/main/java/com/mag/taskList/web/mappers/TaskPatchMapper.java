@@ -0,0 +1,88 @@
+package com.mag.taskList.web.mappers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mag.taskList.domain.task.TaskPatch;
+import com.mag.taskList.web.dto.task.TaskDTO;
+import com.mag.taskList.web.dto.validation.OnUpdate;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Преобразует документ JSON Merge Patch (RFC 7396) в {@link TaskPatch}.
+ * Значения полей читаются так же, как у {@link TaskDTO}
+ * (форматы дат и статусов совпадают), и проверяются теми же
+ * ограничениями (группа OnUpdate). Передать можно только
+ * title, description, status и expirationDate.
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskPatchMapper {
+
+    /**
+     * Поля документа и соответствующие поля задачи
+     */
+    private static final Map<String, TaskPatch.Field> FIELDS = Map.of(
+            "title", TaskPatch.Field.TITLE,
+            "description", TaskPatch.Field.DESCRIPTION,
+            "status", TaskPatch.Field.STATUS,
+            "expirationDate", TaskPatch.Field.EXPIRATION_DATE
+    );
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    /**
+     * Преобразует документ в изменения задачи
+     *
+     * @param id       идентификатор задачи
+     * @param document документ JSON Merge Patch
+     * @return изменения задачи
+     */
+    public TaskPatch toPatch(Long id, ObjectNode document) {
+        TaskDTO dto;
+        try {
+            dto = objectMapper.treeToValue(document, TaskDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed merge patch.");
+        }
+
+        TaskPatch patch = new TaskPatch();
+        patch.setId(id);
+        Set<ConstraintViolation<TaskDTO>> violations = new HashSet<>();
+        Iterator<String> names = document.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            TaskPatch.Field field = FIELDS.get(name);
+            if (field == null) {
+                throw new IllegalStateException("Field " + name + " cannot be patched.");
+            }
+            violations.addAll(validator.validateProperty(dto, name, OnUpdate.class));
+            patch.set(field, switch (field) {
+                case TITLE -> dto.getTitle();
+                case DESCRIPTION -> dto.getDescription();
+                case STATUS -> dto.getStatus();
+                case EXPIRATION_DATE -> dto.getExpirationDate();
+            });
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        // Столбец status не может быть пустым
+        if (patch.getValues().containsKey(TaskPatch.Field.STATUS)
+                && patch.getValues().get(TaskPatch.Field.STATUS) == null) {
+            throw new IllegalStateException("Status must be not null.");
+        }
+        return patch;
+    }
+
+}
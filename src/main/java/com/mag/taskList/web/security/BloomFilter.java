@@ -0,0 +1,100 @@
+package com.mag.taskList.web.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума для строк.
+ * Метод mightContain может ошибочно вернуть true (с малой вероятностью),
+ * но никогда не возвращает false для добавленного значения.
+ * Класс является потокобезопасным.
+ */
+public class BloomFilter {
+
+    /**
+     * Битовый массив
+     */
+    private final AtomicLongArray bits;
+    /**
+     * Количество бит
+     */
+    private final int size;
+    /**
+     * Количество хеш-функций
+     */
+    private final int hashes;
+
+    /**
+     * Параметризованный конструктор
+     *
+     * @param size   количество бит (округляется вверх до кратного 64)
+     * @param hashes количество хеш-функций
+     */
+    public BloomFilter(int size, int hashes) {
+        this.bits = new AtomicLongArray((size + 63) / 64);
+        this.size = bits.length() * 64;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Добавляет значение в фильтр
+     *
+     * @param value значение
+     */
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            int index = Math.floorMod(h1 + i * h2, size);
+            long mask = 1L << index;
+            int word = index >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Проверяет, могло ли значение быть добавлено в фильтр
+     *
+     * @param value значение
+     * @return false - значение точно не добавлялось,
+     * true - значение, вероятно, было добавлено
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            int index = Math.floorMod(h1 + i * h2, size);
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-битный хеш (FNV-1a с перемешиванием бит)
+     *
+     * @param value значение
+     * @return хеш
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
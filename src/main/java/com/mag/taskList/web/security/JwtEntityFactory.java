@@ -2,6 +2,8 @@ package com.mag.taskList.web.security;
 
 import com.mag.taskList.domain.user.Role;
 import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
@@ -25,6 +27,41 @@ public class JwtEntityFactory {
         );
     }
 
+    /**
+     * Создает пользователя из данных для аутентификации
+     * @param credentials id, username, пароль и роли пользователя
+     * @return JwtEntity
+     */
+    public static JwtEntity create(UserCredentials credentials) {
+        return new JwtEntity(
+                credentials.getId(),
+                credentials.getUsername(),
+                credentials.getName(),
+                credentials.getPassword(),
+                mapToGrantedAuthorities(new ArrayList<>(credentials.getRoles()))
+        );
+    }
+
+    /**
+     * Создает пользователя из тела access_token.
+     * Пароль и имя в токене не хранятся, поэтому они отсутствуют.
+     * @param claims тело проверенного токена (id, subject, roles)
+     * @return JwtEntity
+     */
+    public static JwtEntity create(Claims claims) {
+        @SuppressWarnings("unchecked")
+        List<String> roles = claims.get("roles", List.class);
+        return new JwtEntity(
+                Long.valueOf(claims.get("id").toString()),
+                claims.getSubject(),
+                null,
+                null,
+                roles == null ? List.of() : roles.stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.toList())
+        );
+    }
+
     /**
      * Преобразует список ролей (Enums).
      * Задает логику для Spring.
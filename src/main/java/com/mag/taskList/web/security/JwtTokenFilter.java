@@ -1,6 +1,7 @@
 package com.mag.taskList.web.security;
 
 import com.mag.taskList.domain.exception.ResourceNotFoundException;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
@@ -31,10 +32,14 @@ public class JwtTokenFilter extends GenericFilterBean {
             bearerToken = bearerToken.substring(7);
         }
 
-        if (bearerToken != null && jwtTokenProvider.validateToken(bearerToken)) {
+        // Токен разбирается и проверяется один раз за запрос
+        Claims claims = bearerToken != null ? jwtTokenProvider.parseClaims(bearerToken) : null;
+
+        // refresh_token подписан тем же ключом, но не дает доступа к API
+        if (claims != null && jwtTokenProvider.isAccessToken(claims)) {
             try {
                 // Авторизация пользователя
-                Authentication authentication = jwtTokenProvider.getAuthentication(bearerToken);
+                Authentication authentication = jwtTokenProvider.getAuthentication(claims);
                 if (authentication != null) {
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
@@ -7,7 +7,8 @@ import com.mag.taskList.service.UserService;
 import com.mag.taskList.service.props.JwtProperties;
 import com.mag.taskList.web.dto.auth.JwtResponse;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -23,7 +24,11 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -37,14 +42,42 @@ public class JwtTokenProvider {
 
     private final UserDetailsService userDetailsService;
     private final UserService userService;
+    private final RefreshTokenStore refreshTokenStore;
     private Key key;
 
     /**
-     * Инициализация ключа
+     * Парсер токенов. Создается один раз при инициализации
+     * и является потокобезопасным, поэтому используется всеми запросами.
+     */
+    private JwtParser parser;
+
+    /**
+     * Время последней проверки пользователя в БД (режим stateless).
+     * Ключ - идентификатор пользователя, значение - время в миллисекундах.
+     */
+    private final Map<Long, Long> verifiedUsers = new ConcurrentHashMap<>();
+
+    /**
+     * Ограничение на количество записей в verifiedUsers
+     */
+    private static final int MAX_VERIFIED_USERS = 100_000;
+
+    /**
+     * Claim с типом токена (access или refresh)
+     */
+    private static final String TYPE_CLAIM = "type";
+    private static final String ACCESS_TYPE = "access";
+    private static final String REFRESH_TYPE = "refresh";
+
+    /**
+     * Инициализация ключа и парсера
      */
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
     /**
@@ -63,6 +96,7 @@ public class JwtTokenProvider {
         Claims claims = Jwts.claims().setSubject(username);
         claims.put("id", userId);
         claims.put("roles", resolveRoles(roles));
+        claims.put(TYPE_CLAIM, ACCESS_TYPE);
 
         // Время, когда токен перестанет быть действительным
         Instant validity = Instant.now()
@@ -91,7 +125,7 @@ public class JwtTokenProvider {
 
 
     /**
-     * Создает refresh_token
+     * Создает refresh_token, начиная новое семейство токенов
      *
      * @param userId   идентификатор пользователя
      * @param username логин пользователя
@@ -99,9 +133,30 @@ public class JwtTokenProvider {
      */
     public String createRefreshToken(Long userId,
                                      String username) {
+        String familyId = UUID.randomUUID().toString();
+        String jti = UUID.randomUUID().toString();
+        return createRefreshToken(userId, username, familyId, jti);
+    }
+
+    /**
+     * Создает refresh_token, принадлежащий семейству
+     *
+     * @param userId   идентификатор пользователя
+     * @param username логин пользователя
+     * @param familyId идентификатор семейства
+     * @param jti      идентификатор токена
+     * @return refresh_token, представляющий собой строку
+     */
+    private String createRefreshToken(Long userId,
+                                      String username,
+                                      String familyId,
+                                      String jti) {
 
         Claims claims = Jwts.claims().setSubject(username);
         claims.put("id", userId);
+        claims.put("fid", familyId);
+        claims.put(TYPE_CLAIM, REFRESH_TYPE);
+        claims.setId(jti);
 
         // Срок жизни токена
         Instant validity = Instant.now()
@@ -125,13 +180,22 @@ public class JwtTokenProvider {
 
         JwtResponse jwtResponse = new JwtResponse();
 
-        // Проверка на валидность refresh_token
-        if (!validateToken(refreshToken)) {
+        // Проверка на валидность refresh_token (токен разбирается один раз)
+        Claims claims = parseClaims(refreshToken);
+        if (claims == null || ACCESS_TYPE.equals(claims.get(TYPE_CLAIM))
+                || claims.getId() == null || claims.get("fid") == null
+                || claims.getExpiration() == null) {
+            throw new AccessDeniedException();
+        }
+
+        // Отмечаем токен использованным (повторное использование отзывает семейство)
+        String familyId = claims.get("fid").toString();
+        if (!refreshTokenStore.rotate(familyId, claims.getId(), claims.getExpiration())) {
             throw new AccessDeniedException();
         }
 
         // Извлекаем id из refresh_token
-        Long userId = Long.valueOf(getId(refreshToken));
+        Long userId = getId(claims);
         // Получаем пользователя
         User user = userService.getById(userId);
 
@@ -144,13 +208,48 @@ public class JwtTokenProvider {
         );
 
         jwtResponse.setRefreshToken(
-                createRefreshToken(userId, user.getUsername())
+                createRefreshToken(userId, user.getUsername(), familyId, UUID.randomUUID().toString())
         );
 
         return jwtResponse;
     }
 
 
+    /**
+     * Разбирает токен и проверяет его подпись и срок жизни.
+     * Результат (claims) передается дальше, поэтому повторно
+     * токен не разбирается.
+     *
+     * @param token токен, который необходимо проверить
+     * @return тело токена или null, если токен не является действительным
+     */
+    public Claims parseClaims(String token) {
+        try {
+            // Парсер проверяет подпись и срок жизни (exp)
+            return parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Проверяет, что токен является access_token.
+     * Токены, выданные до появления claim type, не содержат его;
+     * среди них refresh_token отличается наличием семейства (fid).
+     *
+     * @param claims тело токена, который уже был проверен
+     * @return true - токен можно использовать для доступа к API
+     */
+    public boolean isAccessToken(Claims claims) {
+        Object type = claims.get(TYPE_CLAIM);
+        if (type == null) {
+            return claims.get("fid") == null;
+        }
+        return ACCESS_TYPE.equals(type);
+    }
+
+
     /**
      * Проверяет токен на валидность
      *
@@ -159,43 +258,39 @@ public class JwtTokenProvider {
      * false - токен не является действительным
      */
     public boolean validateToken(String token) {
-        Jws<Claims> claims = Jwts
-                .parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
-
-        return !claims.getBody().getExpiration().before(new Date());
+        return parseClaims(token) != null;
     }
 
 
     /**
-     * Получает id из токена
+     * Получает id из тела токена
      *
-     * @param token токен, имеющийся в системе
-     * @return идентификатор (id) токена
+     * @param claims тело токена, который уже был проверен
+     * @return идентификатор пользователя
      */
-    private String getId(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()                  // получить тело токена
-                .get("id")                  // получить объект по ключу (id)
-                .toString();                // возвратить строковый объект
+    private Long getId(Claims claims) {
+        // получить объект по ключу (id)
+        return Long.valueOf(claims.get("id").toString());
     }
 
     /**
      * Предоставляем Spring Security информацию
      * о пользователе, которого мы проверили.
      *
-     * @param token токен
+     * @param claims тело токена, который уже был проверен
      * @return {@link Authentication}
      */
-    public Authentication getAuthentication(String token) {
-        String username = getUsername(token);
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    public Authentication getAuthentication(Claims claims) {
+        UserDetails userDetails;
+        if (jwtProperties.isStateless()) {
+            // id и роли уже хранятся в access_token
+            JwtEntity jwtEntity = JwtEntityFactory.create(claims);
+            revalidate(jwtEntity.getId());
+            userDetails = jwtEntity;
+        } else {
+            // subject хранит username
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        }
 
         return new UsernamePasswordAuthenticationToken(userDetails, "",
                 userDetails.getAuthorities());
@@ -203,18 +298,27 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Получает логин пользователя (username) из токена
+     * Периодически проверяет, что пользователь все еще существует.
+     * Если пользователь удален, выбрасывается
+     * {@link com.mag.taskList.domain.exception.ResourceNotFoundException}
      *
-     * @param token токен, который имеется в системе
-     * @return логин пользователя
+     * @param userId идентификатор пользователя
      */
-    private String getUsername(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();            // получить subject, поскольку там хранится username
+    private void revalidate(Long userId) {
+        long now = System.currentTimeMillis();
+        Long verifiedAt = verifiedUsers.get(userId);
+        long interval = TimeUnit.MINUTES.toMillis(jwtProperties.getRevalidation());
+
+        if (verifiedAt != null && now - verifiedAt < interval) {
+            return;
+        }
+
+        // Выбрасывает исключение, если пользователь не найден
+        userService.getById(userId);
+
+        if (verifiedUsers.size() >= MAX_VERIFIED_USERS) {
+            verifiedUsers.clear();
+        }
+        verifiedUsers.put(userId, now);
     }
 }
@@ -1,9 +1,10 @@
 package com.mag.taskList.web.security;
 
-import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
 import com.mag.taskList.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -11,12 +12,14 @@ import org.springframework.stereotype.Service;
 /**
  * Класс (сервис), который необходим Spring Security
  * для получения какого-либо пользователя.
- * Spring получает пользователя, используя метод loadUserByUsername
+ * Spring получает пользователя, используя метод loadUserByUsername.
+ * Через {@link UserDetailsPasswordService} Spring обновляет устаревшие
+ * хеши паролей после успешного входа.
  * @see UserDetailsService
  */
 @Service
 @RequiredArgsConstructor
-public class JwtUserDetailsService implements UserDetailsService {
+public class JwtUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserService userService;
 
@@ -30,9 +33,28 @@ public class JwtUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Получить пользователя из базы
-        User user = userService.getByUsername(username);
+        // Получить данные для аутентификации (из кэша или базы)
+        UserCredentials credentials = userService.getCredentialsByUsername(username);
         // Возвратить объект UserDetails, используя фабрику
-        return JwtEntityFactory.create(user);
+        return JwtEntityFactory.create(credentials);
+    }
+
+    /**
+     * Сохраняет хеш пароля, пересчитанный с текущей стоимостью BCrypt
+     * @param user пользователь, который успешно вошел в систему
+     * @param newPassword новый хеш пароля
+     * @return объект UserDetails с новым хешем
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        JwtEntity jwtEntity = (JwtEntity) user;
+        userService.updatePassword(jwtEntity.getId(), jwtEntity.getUsername(), newPassword);
+        return new JwtEntity(
+                jwtEntity.getId(),
+                jwtEntity.getUsername(),
+                jwtEntity.getName(),
+                newPassword,
+                jwtEntity.getAuthorities()
+        );
     }
 }
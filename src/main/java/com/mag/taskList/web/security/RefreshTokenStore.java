@@ -0,0 +1,235 @@
+package com.mag.taskList.web.security;
+
+import com.mag.taskList.service.props.JwtProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Хранилище семейств refresh_token.
+ * Каждый refresh_token имеет идентификатор (jti) и принадлежит семейству (fid).
+ * Токен можно использовать один раз: использованные jti и отозванные семейства
+ * хранятся в Redis (sorted set, score - время истечения) и в локальном фильтре Блума,
+ * который синхронизируется между узлами через pub/sub.
+ * Обычный случай (токен не использовался) проверяется только по фильтру,
+ * без обращения к Redis; отметка об использовании записывается в фоне.
+ * Redis проверяется, только если фильтр ответил положительно.
+ * Повторное использование токена отзывает все семейство.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenStore implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenStore.class);
+
+    /**
+     * Канал, в который публикуются новые записи
+     */
+    private static final String REVOKED_CHANNEL = "refresh-token:revoked";
+    /**
+     * Использованные jti и отозванные семейства
+     * (sorted set, score - время истечения токена)
+     */
+    private static final String REVOKED_KEY = "refresh-token:revoked";
+    /**
+     * Префиксы записей о токене и о семействе
+     */
+    private static final String TOKEN = "jti:";
+    private static final String FAMILY = "fid:";
+
+    /**
+     * Размер фильтра Блума (в битах) и количество хеш-функций.
+     * Каждый refresh добавляет в фильтр один jti; примерно 1% ложных
+     * срабатываний на 800 000 записей (около 1 МБ памяти).
+     */
+    private static final int FILTER_SIZE = 1 << 23;
+    private static final int FILTER_HASHES = 7;
+    private static final int FILTER_CAPACITY = 800_000;
+
+    /**
+     * Добавляет запись, если ее еще нет, и сообщает о ней остальным узлам.
+     * Возвращает 1, если запись добавлена, и 0, если она уже была.
+     */
+    private static final RedisScript<Long> ADD = new DefaultRedisScript<>("""
+            local added = redis.call('ZADD', KEYS[1], 'NX', ARGV[2], ARGV[1])
+            if added == 1 then
+                redis.call('PUBLISH', ARGV[3], ARGV[1])
+            end
+            return added
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final JwtProperties jwtProperties;
+
+    private volatile BloomFilter revoked = new BloomFilter(FILTER_SIZE, FILTER_HASHES);
+    private final AtomicInteger revokedCount = new AtomicInteger();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    /**
+     * Поток, записывающий отметки об использовании токенов
+     */
+    private ExecutorService writer;
+
+    /**
+     * Подписка на канал и загрузка записей
+     */
+    @PostConstruct
+    public void init() {
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOKED_CHANNEL));
+        reload();
+    }
+
+    @PreDestroy
+    public void stop() {
+        writer.shutdown();
+    }
+
+    /**
+     * Отмечает токен использованным (ротация).
+     * Если фильтр Блума не содержит ни токен, ни семейство, токен принимается
+     * без обращения к Redis, а отметка записывается в фоне. Если при записи
+     * окажется, что другой узел уже принял этот токен, семейство отзывается.
+     * При положительном ответе фильтра решение принимается по Redis.
+     *
+     * @param familyId   идентификатор семейства
+     * @param jti        идентификатор предъявленного токена
+     * @param expiration время истечения предъявленного токена
+     * @return true - токен принят, false - токен недействителен
+     */
+    public boolean rotate(String familyId, String jti, Date expiration) {
+        String family = FAMILY + familyId;
+        if (revoked.mightContain(family)
+                && redisTemplate.opsForZSet().score(REVOKED_KEY, family) != null) {
+            return false;
+        }
+
+        String token = TOKEN + jti;
+        long expiresAt = expiration.getTime();
+        if (revoked.mightContain(token)) {
+            // Положительный ответ фильтра подтверждается в Redis
+            if (!add(token, expiresAt)) {
+                revokeFamily(familyId);
+                return false;
+            }
+            return true;
+        }
+
+        addToFilter(token);
+        writer.execute(() -> {
+            try {
+                if (!add(token, expiresAt)) {
+                    // Токен уже был принят другим узлом
+                    revokeFamily(familyId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot store used refresh token {}: {}", jti, e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Отзывает семейство токенов и сообщает об этом остальным узлам
+     *
+     * @param familyId идентификатор семейства
+     */
+    public void revokeFamily(String familyId) {
+        String family = FAMILY + familyId;
+        addToFilter(family);
+        add(family, System.currentTimeMillis() + lifetime().toMillis());
+    }
+
+    /**
+     * Добавляет запись в Redis
+     *
+     * @param value     запись
+     * @param expiresAt время истечения записи
+     * @return true - запись добавлена, false - запись уже была
+     */
+    private boolean add(String value, long expiresAt) {
+        Long added = redisTemplate.execute(ADD, List.of(REVOKED_KEY),
+                value, String.valueOf(expiresAt), REVOKED_CHANNEL);
+        return added != null && added == 1;
+    }
+
+    /**
+     * Получает запись от другого узла
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        addToFilter(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void addToFilter(String value) {
+        revoked.put(value);
+        // Фильтр переполнен - пересоздаем его в фоне без истекших записей
+        if (revokedCount.incrementAndGet() > FILTER_CAPACITY && reloading.compareAndSet(false, true)) {
+            writer.execute(() -> {
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    log.warn("Cannot reload used refresh tokens: {}", e.getMessage());
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Пересоздает фильтр Блума по данным Redis.
+     * Истекшие записи удаляются, так как такие токены не пройдут проверку срока жизни.
+     * Если записей больше емкости фильтра, доля ложных срабатываний растет,
+     * но каждое срабатывание подтверждается в Redis.
+     */
+    private synchronized void reload() {
+        redisTemplate.opsForZSet().removeRangeByScore(REVOKED_KEY, 0, System.currentTimeMillis());
+        Set<String> values = redisTemplate.opsForZSet().range(REVOKED_KEY, 0, -1);
+
+        BloomFilter filter = new BloomFilter(FILTER_SIZE, FILTER_HASHES);
+        if (values != null) {
+            values.forEach(filter::put);
+        }
+        int count = values == null ? 0 : values.size();
+        if (count > FILTER_CAPACITY) {
+            log.warn("Refresh token filter holds {} entries, capacity is {}", count, FILTER_CAPACITY);
+        }
+        // Следующая перезагрузка - не раньше, чем через 10% емкости
+        revokedCount.set(Math.min(count, FILTER_CAPACITY - FILTER_CAPACITY / 10));
+        revoked = filter;
+    }
+
+    /**
+     * Срок жизни refresh_token
+     */
+    private Duration lifetime() {
+        return Duration.ofDays(jwtProperties.getRefresh());
+    }
+
+}
@@ -12,6 +12,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.Collection;
+
 /**
  * Класс, в котором переопределяются Security Expressions,
  * имеющиеся у Spring Boot (+ добавление своих).
@@ -101,6 +103,22 @@ public class CustomMethodSecurityExpressionRoot
         return userService.isTaskOwner(userId, taskId);
     }
 
+    /**
+     * Метод, который проверяет, имеет ли авторизованный пользователь
+     * доступ ко всем задачам из списка
+     *
+     * @param taskIds задачи, которые хотелось бы изменить
+     * @return true - пользователь имеет доступ ко всем задачам,
+     * false - хотя бы одна задача недоступна
+     */
+    public boolean canAccessTasks(Collection<Long> taskIds) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        JwtEntity user = (JwtEntity) authentication.getPrincipal();
+        Long userId = user.getId();
+
+        return userService.isTasksOwner(userId, taskIds);
+    }
+
 
     @Override
     public Object getThis() {
@@ -0,0 +1,2 @@
+-- Поиск владельца задачи и удаление задач (внешний ключ users_tasks.task_id)
+create index if not exists idx_users_tasks_task_id on users_tasks (task_id);
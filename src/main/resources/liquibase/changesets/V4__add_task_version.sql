@@ -0,0 +1,2 @@
+-- Версия строки для оптимистической блокировки (UPDATE ... WHERE id = ? AND version = ?)
+alter table tasks add column if not exists version bigint not null default 0;
@@ -0,0 +1,24 @@
+-- Журнал изменений задач (transactional outbox).
+-- Запись добавляется в транзакции, изменяющей задачу.
+-- Номер seq присваивает ретранслятор в порядке публикации,
+-- поэтому лента изменений не пропускает транзакции, зафиксированные позже.
+create sequence if not exists task_changes_seq;
+
+create table if not exists task_changes
+(
+    id         bigserial primary key,
+    seq        bigint      null,
+    user_id    bigint      not null,
+    task_id    bigint      not null,
+    type       varchar(16) not null,
+    created_at timestamp   not null default now()
+);
+
+-- Лента изменений пользователя
+create index if not exists idx_task_changes_user_id_seq on task_changes (user_id, seq);
+
+-- Минимальный и максимальный номер опубликованных изменений
+create unique index if not exists idx_task_changes_seq on task_changes (seq);
+
+-- Неопубликованные изменения
+create index if not exists idx_task_changes_unpublished on task_changes (id) where seq is null;
@@ -0,0 +1,165 @@
+package com.mag.taskList.config.cache;
+
+import com.mag.taskList.domain.task.Status;
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.user.Role;
+import com.mag.taskList.domain.user.User;
+import com.mag.taskList.domain.user.UserCredentials;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(512);
+
+    @Test
+    void taskRoundTrip() {
+        Task task = task(1L, "Title");
+        task.setDescription("Описание");
+        task.setStatus(Status.IN_PROGRESS);
+        task.setExpirationDate(LocalDateTime.of(2023, 5, 1, 10, 30, 15, 123_000_000));
+        task.setVersion(7L);
+
+        assertEquals(task, roundTrip(task));
+    }
+
+    @Test
+    void taskWithNullFieldsRoundTrip() {
+        Task task = new Task();
+        task.setId(2L);
+
+        assertEquals(task, roundTrip(task));
+    }
+
+    @Test
+    void userRoundTrip() {
+        User user = new User();
+        user.setId(3L);
+        user.setName("Name");
+        user.setUsername("user@example.com");
+        user.setPassword("{bcrypt}hash");
+        user.setPasswordConfirmation("not cached");
+        user.setRoles(Set.of(Role.ROLE_USER, Role.ROLE_ADMIN));
+        user.setTasks(List.of(task(4L, "First"), task(5L, "Second")));
+
+        User result = (User) roundTrip(user);
+
+        assertEquals(user.getId(), result.getId());
+        assertEquals(user.getName(), result.getName());
+        assertEquals(user.getUsername(), result.getUsername());
+        assertEquals(user.getPassword(), result.getPassword());
+        assertNull(result.getPasswordConfirmation());
+        assertEquals(user.getRoles(), result.getRoles());
+        assertEquals(user.getTasks(), result.getTasks());
+    }
+
+    @Test
+    void credentialsRoundTrip() {
+        UserCredentials credentials = new UserCredentials();
+        credentials.setId(6L);
+        credentials.setUsername("user@example.com");
+        credentials.setPassword("{bcrypt}hash");
+        credentials.setRoles(Set.of(Role.ROLE_USER));
+
+        assertEquals(credentials, roundTrip(credentials));
+    }
+
+    @Test
+    void envelopeRoundTrip() {
+        CacheEnvelope envelope = new CacheEnvelope(List.of(task(7L, "Task")), 1_700_000_000_000L, 25);
+
+        CacheEnvelope result = (CacheEnvelope) roundTrip(envelope);
+
+        assertEquals(envelope.getValue(), result.getValue());
+        assertEquals(envelope.getLoadedAt(), result.getLoadedAt());
+        assertEquals(envelope.getDelta(), result.getDelta());
+    }
+
+    @Test
+    void envelopeWithNullValueRoundTrip() {
+        CacheEnvelope result = (CacheEnvelope) roundTrip(new CacheEnvelope(null, 1, 0));
+
+        assertNull(result.getValue());
+    }
+
+    @Test
+    void otherValuesUseJdkSerialization() {
+        Map<String, Long> value = Map.of("key", 1L);
+
+        assertEquals(value, roundTrip(value));
+        assertEquals(Boolean.TRUE, roundTrip(Boolean.TRUE));
+    }
+
+    @Test
+    void largeValuesAreCompressed() {
+        CompactRedisSerializer compressing = new CompactRedisSerializer(64);
+        Task task = task(8L, "x".repeat(10_000));
+
+        byte[] bytes = compressing.serialize(task);
+
+        assertEquals(1, bytes[2]);
+        assertEquals(task, compressing.deserialize(bytes));
+        // Сжатые записи читаются независимо от порога
+        assertEquals(task, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void rejectsJdkSerializedValues() {
+        byte[] bytes = new JdkSerializationRedisSerializer().serialize(task(9L, "Legacy"));
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    @Test
+    void nullAndEmptyValues() {
+        assertArrayEquals(new byte[0], serializer.serialize(null));
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    void writesVersion() {
+        assertEquals(1, serializer.serialize(task(10L, "Task"))[1]);
+    }
+
+    @Test
+    void rejectsOtherVersions() {
+        byte[] bytes = serializer.serialize(task(12L, "Task"));
+        bytes[1] = 2;
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    @Test
+    void rejectsTruncatedValue() {
+        byte[] bytes = new CompactRedisSerializer(64).serialize(task(13L, "x".repeat(1_000)));
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(truncated));
+    }
+
+    private Object roundTrip(Object value) {
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    private static Task task(Long id, String title) {
+        Task task = new Task();
+        task.setId(id);
+        task.setTitle(title);
+        task.setStatus(Status.TODO);
+        return task;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.mag.taskList.config.jdbc;
+
+import com.mag.taskList.service.props.JdbcMonitoringProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcStatisticsTest {
+
+    @Test
+    void replacesLiterals() {
+        assertEquals("SELECT * FROM tasks WHERE id = ? AND title = ?",
+                JdbcStatistics.normalize("SELECT * FROM tasks WHERE id = 42 AND title = 'it''s'"));
+        assertEquals("SELECT * FROM tasks WHERE id = ?",
+                JdbcStatistics.normalize("SELECT * FROM tasks WHERE id = -1.5"));
+    }
+
+    @Test
+    void keepsIdentifiersWithDigits() {
+        assertEquals("SELECT t1.id FROM tasks t1 WHERE t1.id = ?",
+                JdbcStatistics.normalize("SELECT t1.id FROM tasks t1 WHERE t1.id = 7"));
+    }
+
+    @Test
+    void collapsesWhitespace() {
+        assertEquals("SELECT id FROM tasks",
+                JdbcStatistics.normalize("  SELECT\n    id\tFROM   tasks \n"));
+    }
+
+    @Test
+    void collapsesParameterLists() {
+        assertEquals("SELECT * FROM tasks WHERE id IN (?)",
+                JdbcStatistics.normalize("SELECT * FROM tasks WHERE id IN (?, ?, ?)"));
+        assertEquals("SELECT * FROM tasks WHERE id IN (?)",
+                JdbcStatistics.normalize("SELECT * FROM tasks WHERE id IN (1, 2, 3)"));
+    }
+
+    @Test
+    void collapsesValuesRows() {
+        assertEquals("INSERT INTO users_tasks (user_id, task_id) VALUES (?)",
+                JdbcStatistics.normalize("INSERT INTO users_tasks (user_id, task_id) VALUES (?, ?), (?, ?), (?, ?)"));
+        assertEquals("INSERT INTO tasks (title) VALUES (?)",
+                JdbcStatistics.normalize("INSERT INTO tasks (title) VALUES (?), (?)"));
+    }
+
+    @Test
+    void nullStatement() {
+        assertEquals("", JdbcStatistics.normalize(null));
+    }
+
+    @Test
+    void groupsExecutionsByNormalizedText() {
+        JdbcStatistics statistics = new JdbcStatistics(properties());
+
+        statistics.record("SELECT * FROM tasks WHERE id IN (1, 2)", 1_000_000, true);
+        statistics.record("SELECT * FROM tasks WHERE id IN (3, 4, 5)", 3_000_000, true);
+        statistics.record("SELECT * FROM tasks WHERE id IN (1, 2)", 2_000_000, false);
+
+        Map<String, Map<String, Object>> statements = statistics.statements();
+        Map<String, Object> statement = statements.get("SELECT * FROM tasks WHERE id IN (?)");
+        assertEquals(1, statements.size());
+        assertEquals(3L, statement.get("count"));
+        assertEquals(1L, statement.get("errors"));
+        assertEquals(6L, statement.get("totalMs"));
+        assertEquals(3L, statement.get("maxMs"));
+    }
+
+    @Test
+    void slowQueriesAreLoggedNormalized() {
+        JdbcStatistics statistics = new JdbcStatistics(properties());
+
+        statistics.record("SELECT * FROM users WHERE username = 'secret'", Duration.ofSeconds(1).toNanos(), true);
+
+        assertEquals(1, statistics.slowQueries().size());
+        assertEquals("SELECT * FROM users WHERE username = ?", statistics.slowQueries().get(0).sql());
+
+        statistics.reset();
+        assertTrue(statistics.statements().isEmpty());
+        assertTrue(statistics.slowQueries().isEmpty());
+    }
+
+    private static JdbcMonitoringProperties properties() {
+        return new JdbcMonitoringProperties();
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.mag.taskList.web.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ETagsTest {
+
+    @Test
+    void createsStrongETag() {
+        assertEquals("\"3\"", ETags.of(3));
+    }
+
+    @Test
+    void parsesOwnETag() {
+        assertEquals(12L, ETags.parseVersion(ETags.of(12)));
+        assertEquals(7L, ETags.parseVersion("  \"7\" "));
+    }
+
+    @Test
+    void anyVersion() {
+        assertNull(ETags.parseVersion("*"));
+        assertNull(ETags.parseVersion(" * "));
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        assertThrows(IllegalStateException.class, () -> ETags.parseVersion("3"));
+        assertThrows(IllegalStateException.class, () -> ETags.parseVersion("W/\"3\""));
+        assertThrows(IllegalStateException.class, () -> ETags.parseVersion("\"\""));
+        assertThrows(IllegalStateException.class, () -> ETags.parseVersion("\"abc\""));
+        assertThrows(IllegalStateException.class, () -> ETags.parseVersion("\"1\", \"2\""));
+        assertThrows(IllegalStateException.class, () -> ETags.parseVersion(""));
+    }
+
+}
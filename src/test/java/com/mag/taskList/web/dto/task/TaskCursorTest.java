@@ -0,0 +1,100 @@
+package com.mag.taskList.web.dto.task;
+
+import com.mag.taskList.domain.task.Task;
+import com.mag.taskList.domain.task.TaskFilter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskCursorTest {
+
+    @Test
+    void idCursorRoundTrip() {
+        TaskFilter filter = filter(TaskFilter.Sort.ID);
+
+        TaskCursor.decode(TaskCursor.encode(task(42L, null), TaskFilter.Sort.ID), filter);
+
+        assertEquals(42L, filter.getAfterId());
+        assertNull(filter.getAfterExpirationDate());
+    }
+
+    @Test
+    void expirationCursorRoundTrip() {
+        LocalDateTime date = LocalDateTime.of(2023, 5, 1, 10, 30);
+        TaskFilter filter = filter(TaskFilter.Sort.EXPIRATION_DATE);
+
+        TaskCursor.decode(TaskCursor.encode(task(7L, date), TaskFilter.Sort.EXPIRATION_DATE), filter);
+
+        assertEquals(7L, filter.getAfterId());
+        assertEquals(date, filter.getAfterExpirationDate());
+    }
+
+    @Test
+    void expirationCursorWithoutDate() {
+        TaskFilter filter = filter(TaskFilter.Sort.EXPIRATION_DATE);
+
+        TaskCursor.decode(TaskCursor.encode(task(9L, null), TaskFilter.Sort.EXPIRATION_DATE), filter);
+
+        assertEquals(9L, filter.getAfterId());
+        assertNull(filter.getAfterExpirationDate());
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = TaskCursor.encode(task(Long.MAX_VALUE, LocalDateTime.of(2023, 12, 31, 23, 59, 59)),
+                TaskFilter.Sort.EXPIRATION_DATE);
+
+        assertEquals(-1, indexOfAny(cursor, "+/="));
+    }
+
+    @Test
+    void rejectsInvalidCursor() {
+        assertThrows(IllegalStateException.class,
+                () -> TaskCursor.decode("not base64!", filter(TaskFilter.Sort.ID)));
+        assertThrows(IllegalStateException.class,
+                () -> TaskCursor.decode(encode("abc"), filter(TaskFilter.Sort.ID)));
+        assertThrows(IllegalStateException.class,
+                () -> TaskCursor.decode(encode("5:yesterday"), filter(TaskFilter.Sort.EXPIRATION_DATE)));
+    }
+
+    @Test
+    void rejectsIdCursorForExpirationSort() {
+        String cursor = TaskCursor.encode(task(5L, null), TaskFilter.Sort.ID);
+
+        assertThrows(IllegalStateException.class,
+                () -> TaskCursor.decode(cursor, filter(TaskFilter.Sort.EXPIRATION_DATE)));
+    }
+
+    private static TaskFilter filter(TaskFilter.Sort sort) {
+        TaskFilter filter = new TaskFilter();
+        filter.setSort(sort);
+        return filter;
+    }
+
+    private static Task task(Long id, LocalDateTime expirationDate) {
+        Task task = new Task();
+        task.setId(id);
+        task.setExpirationDate(expirationDate);
+        return task;
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int indexOfAny(String value, String chars) {
+        for (int i = 0; i < value.length(); i++) {
+            if (chars.indexOf(value.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
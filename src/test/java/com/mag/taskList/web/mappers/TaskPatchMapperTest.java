@@ -0,0 +1,96 @@
+package com.mag.taskList.web.mappers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mag.taskList.domain.task.Status;
+import com.mag.taskList.domain.task.TaskPatch;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskPatchMapperTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final Validator validator = Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+    private final TaskPatchMapper mapper = new TaskPatchMapper(objectMapper, validator);
+
+    @Test
+    void containsOnlyPassedFields() throws Exception {
+        TaskPatch patch = mapper.toPatch(1L, document("{\"title\": \"New title\"}"));
+
+        assertEquals(1L, patch.getId());
+        assertEquals(Map.of(TaskPatch.Field.TITLE, "New title"), patch.getValues());
+    }
+
+    @Test
+    void nullClearsField() throws Exception {
+        TaskPatch patch = mapper.toPatch(1L, document("{\"description\": null, \"expirationDate\": null}"));
+
+        assertEquals(2, patch.getValues().size());
+        assertTrue(patch.getValues().containsKey(TaskPatch.Field.DESCRIPTION));
+        assertTrue(patch.getValues().containsKey(TaskPatch.Field.EXPIRATION_DATE));
+        assertEquals(null, patch.getValues().get(TaskPatch.Field.DESCRIPTION));
+        assertEquals(null, patch.getValues().get(TaskPatch.Field.EXPIRATION_DATE));
+    }
+
+    @Test
+    void readsValuesLikeTaskDto() throws Exception {
+        TaskPatch patch = mapper.toPatch(1L,
+                document("{\"status\": \"DONE\", \"expirationDate\": \"2023-05-01 10:30\"}"));
+
+        assertEquals(Status.DONE, patch.getValues().get(TaskPatch.Field.STATUS));
+        assertEquals(LocalDateTime.of(2023, 5, 1, 10, 30),
+                patch.getValues().get(TaskPatch.Field.EXPIRATION_DATE));
+    }
+
+    @Test
+    void emptyDocument() throws Exception {
+        assertTrue(mapper.toPatch(1L, document("{}")).isEmpty());
+    }
+
+    @Test
+    void rejectsFieldsThatCannotBePatched() {
+        assertThrows(IllegalStateException.class, () -> mapper.toPatch(1L, document("{\"id\": 2}")));
+        assertThrows(IllegalStateException.class, () -> mapper.toPatch(1L, document("{\"version\": 2}")));
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertThrows(IllegalStateException.class,
+                () -> mapper.toPatch(1L, document("{\"status\": \"UNKNOWN\"}")));
+        assertThrows(IllegalStateException.class,
+                () -> mapper.toPatch(1L, document("{\"expirationDate\": \"tomorrow\"}")));
+    }
+
+    @Test
+    void validatesPassedFields() {
+        assertThrows(ConstraintViolationException.class,
+                () -> mapper.toPatch(1L, document("{\"title\": null}")));
+        assertThrows(ConstraintViolationException.class,
+                () -> mapper.toPatch(1L, document("{\"description\": \"" + "x".repeat(256) + "\"}")));
+    }
+
+    @Test
+    void statusCannotBeCleared() {
+        assertThrows(IllegalStateException.class, () -> mapper.toPatch(1L, document("{\"status\": null}")));
+    }
+
+    private ObjectNode document(String json) throws Exception {
+        return (ObjectNode) objectMapper.readTree(json);
+    }
+
+}
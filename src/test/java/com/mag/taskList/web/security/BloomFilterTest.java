@@ -0,0 +1,47 @@
+package com.mag.taskList.web.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void containsAddedValues() {
+        BloomFilter filter = new BloomFilter(1 << 16, 7);
+        for (int i = 0; i < 1_000; i++) {
+            filter.put("jti:" + i);
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(filter.mightContain("jti:" + i));
+        }
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1 << 10, 7);
+
+        assertFalse(filter.mightContain("jti:1"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void falsePositiveRateStaysLow() {
+        // 10 бит на значение и 7 хеш-функций - около 1% ложных срабатываний
+        BloomFilter filter = new BloomFilter(100_000, 7);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("jti:" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain("jti:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 3_000, "false positives: " + falsePositives);
+    }
+
+}